@@ -0,0 +1,74 @@
+package model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares Task.parseDateTime with the formatter-by-formatter parsing it replaced, for each accepted format.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DateParsingBenchmark {
+
+    @Param({"2024-12-14 1800", "14/12/2024 18:00", "2024-12-14", "14-12-2024", "2024/12/14", "14/12/2024"})
+    private String input;
+
+    @Benchmark
+    public LocalDateTime shapeParser() {
+        return Task.parseDateTime(input);
+    }
+
+    @Benchmark
+    public LocalDateTime formatterFallbacks() {
+        return parseWithFormatterFallbacks(input);
+    }
+
+    /**
+     * The parsing Task.parseDateTime used to do: build every formatter, then try them in order until one succeeds.
+     */
+    private static LocalDateTime parseWithFormatterFallbacks(String input) {
+        DateTimeFormatter[] formattersWithTime = new DateTimeFormatter[] {
+                DateTimeFormatter.ofPattern("yyyy-MM-dd HHmm"),
+                DateTimeFormatter.ofPattern("dd/MM/yyyy HHmm"),
+                DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm"),
+                DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm"),
+        };
+
+        DateTimeFormatter[] formattersWithoutTime = new DateTimeFormatter[] {
+                DateTimeFormatter.ofPattern("yyyy-MM-dd"),
+                DateTimeFormatter.ofPattern("dd-MM-yyyy"),
+                DateTimeFormatter.ofPattern("yyyy/MM/dd"),
+                DateTimeFormatter.ofPattern("dd/MM/yyyy"),
+        };
+
+        for (DateTimeFormatter formatter : formattersWithTime) {
+            try {
+                return LocalDateTime.parse(input, formatter);
+            } catch (DateTimeParseException e) {
+                // Continue to try the next format
+            }
+        }
+
+        for (DateTimeFormatter formatter : formattersWithoutTime) {
+            try {
+                return LocalDate.parse(input, formatter).atTime(0, 0);
+            } catch (DateTimeParseException e) {
+                // Continue to try the next format
+            }
+        }
+
+        throw new DateTimeParseException("Invalid date/time format", input, 0);
+    }
+}
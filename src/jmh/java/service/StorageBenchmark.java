@@ -0,0 +1,97 @@
+package service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long Storage takes to load a data file of the given number of lines, and to write it back, in the
+ * text and binary formats. The size of the file in each format is printed when it is set up.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class StorageBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int lines;
+
+    @Param({"TEXT", "BINARY"})
+    private StorageConfig.Format format;
+
+    private Path directory;
+    private String filePath;
+    private StorageConfig config;
+    private TaskList loaded;
+    private Storage syncStorage;
+
+    @Setup(Level.Trial)
+    public void writeDataFile() throws Exception {
+        directory = Files.createTempDirectory("snoopy-bench");
+        filePath = directory.resolve("snoopy.txt").toString();
+        try (BufferedWriter writer = Files.newBufferedWriter(Path.of(filePath))) {
+            for (int i = 0; i < lines; i++) {
+                writer.write(sampleLine(i));
+                writer.newLine();
+            }
+        }
+        config = new StorageConfig(StorageConfig.Mode.SYNC, 1, 1, StorageConfig.Fsync.NEVER, format);
+        if (format == StorageConfig.Format.BINARY) {
+            String binaryPath = directory.resolve("snoopy.bin").toString();
+            Storage.convert(filePath, binaryPath);
+            System.out.printf("%n%d lines: text %d bytes, binary %d bytes%n", lines, Files.size(Path.of(filePath)),
+                    Files.size(Path.of(binaryPath)));
+            Files.delete(Path.of(filePath));
+        }
+        loaded = loadInfo();
+        String copyPath = directory.resolve("copy").resolve("snoopy.txt").toString();
+        syncStorage = new Storage(copyPath, config);
+    }
+
+    /**
+     * Obtains a mix of todos, deadlines and events in the format Storage saves them in.
+     */
+    static String sampleLine(int i) {
+        switch (i % 3) {
+        case 0:
+            return "T | " + (i % 2) + " | read book " + i + " | fun";
+        case 1:
+            return "D | " + (i % 2) + " | return book " + i + " | 2024-02-01 1800 | ";
+        default:
+            return "E | " + (i % 2) + " | meeting " + i + " | 01/02/2024 18:00 | 01/02/2024 19:00 | work";
+        }
+    }
+
+    @Benchmark
+    public TaskList loadInfo() throws Exception {
+        TaskList taskList = new TaskList();
+        new Storage(filePath, config).loadInfo(taskList);
+        return taskList;
+    }
+
+    @Benchmark
+    public void updateRecords() {
+        syncStorage.updateRecords(loaded);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteDataFile() throws IOException {
+        try (var paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package snoopy;
+
+import model.Todo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import service.TaskList;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures Snoopy.processCommand for each command type, without persisting, on a list of the given size.
+ * Commands that add a task remove it again afterwards so the list keeps its size, and a task marked is unmarked
+ * again so each call changes it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CommandBenchmark {
+
+    @Param({"1000", "100000"})
+    private int tasks;
+
+    private TaskList todos;
+    private String deleteLast;
+
+    @Setup(Level.Trial)
+    public void fillList() {
+        todos = new TaskList();
+        for (int i = 0; i < tasks; i++) {
+            todos.add(new Todo("read book " + i, i % 2 == 0 ? "fun" : null));
+        }
+        deleteLast = "delete " + (tasks + 1);
+    }
+
+    @Benchmark
+    public String todo() {
+        String reply = Snoopy.processCommand("todo borrow book /tag fun", todos, false);
+        todos.remove(todos.size() - 1);
+        return reply;
+    }
+
+    @Benchmark
+    public String deadline() {
+        String reply = Snoopy.processCommand("deadline return book /by 2024-12-14 1800", todos, false);
+        todos.remove(todos.size() - 1);
+        return reply;
+    }
+
+    @Benchmark
+    public String event() {
+        String reply = Snoopy.processCommand("event meeting /from 14/12/2024 18:00 /to 14/12/2024 19:00 /tag work",
+                todos, false);
+        todos.remove(todos.size() - 1);
+        return reply;
+    }
+
+    @Benchmark
+    public String delete() {
+        todos.add(new Todo("borrow book"));
+        return Snoopy.processCommand(deleteLast, todos, false);
+    }
+
+    /**
+     * Marks and unmarks the same task, since marking a task already done or unmarking one that is not leaves the
+     * list as it is and would only time the lookup.
+     */
+    @Benchmark
+    public String markAndUnmark() {
+        Snoopy.processCommand("mark 1", todos, false);
+        return Snoopy.processCommand("unmark 1", todos, false);
+    }
+
+    @Benchmark
+    public String list() {
+        return Snoopy.processCommand("list", todos, true);
+    }
+
+    @Benchmark
+    public String find() {
+        return Snoopy.processCommand("find book 42", todos, true);
+    }
+
+    @Benchmark
+    public String count() {
+        return Snoopy.processCommand("count /tag fun", todos, true);
+    }
+
+    @Benchmark
+    public String due() {
+        return Snoopy.processCommand("due before 2024-12-31", todos, true);
+    }
+
+    @Benchmark
+    public String unknown() {
+        return Snoopy.processCommand("fetch ball", todos, true);
+    }
+}
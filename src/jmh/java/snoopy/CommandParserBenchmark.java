@@ -0,0 +1,56 @@
+package snoopy;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how many commands of each kind CommandParser splits per second, without running them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CommandParserBenchmark {
+
+    private String todo = "todo borrow book /tag fun";
+    private String deadline = "deadline return book /by 2024-12-14 1800 /tag school";
+    private String event = "event meeting /from 14/12/2024 18:00 /to 14/12/2024 19:00 /tag work";
+    private String mark = "mark 42";
+    private String list = "list next";
+    private String unknown = "fetch ball";
+
+    @Benchmark
+    public ParsedCommand todo() {
+        return CommandParser.parse(todo);
+    }
+
+    @Benchmark
+    public ParsedCommand deadline() {
+        return CommandParser.parse(deadline);
+    }
+
+    @Benchmark
+    public ParsedCommand event() {
+        return CommandParser.parse(event);
+    }
+
+    @Benchmark
+    public ParsedCommand mark() {
+        return CommandParser.parse(mark);
+    }
+
+    @Benchmark
+    public ParsedCommand list() {
+        return CommandParser.parse(list);
+    }
+
+    @Benchmark
+    public ParsedCommand unknown() {
+        return CommandParser.parse(unknown);
+    }
+}
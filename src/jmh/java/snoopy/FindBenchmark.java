@@ -0,0 +1,53 @@
+package snoopy;
+
+import model.Todo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import service.TaskList;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures find latency as the list grows, with the number of matches held at 20.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FindBenchmark {
+
+    private static final int MATCHES = 20;
+    private static final ParsedCommand FIND_WORD = CommandParser.parse("find needle");
+    private static final ParsedCommand FIND_WORD_AND_TAG = CommandParser.parse("find needle #work");
+
+    @Param({"1000", "100000", "1000000"})
+    private int tasks;
+
+    private TaskList todos;
+
+    @Setup(Level.Trial)
+    public void fillList() {
+        todos = new TaskList();
+        int spacing = tasks / MATCHES;
+        for (int i = 0; i < tasks; i++) {
+            String word = i % spacing == 0 ? "needle" : "hay" + (i % 1000);
+            todos.add(new Todo("read " + word + " book " + i, i % 2 == 0 ? "work" : null));
+        }
+    }
+
+    @Benchmark
+    public String findRareWord() {
+        return TaskManager.processFind(FIND_WORD, todos, true);
+    }
+
+    @Benchmark
+    public String findRareWordAndTag() {
+        return TaskManager.processFind(FIND_WORD_AND_TAG, todos, true);
+    }
+}
@@ -0,0 +1,62 @@
+package snoopy;
+
+import model.Deadline;
+import model.Todo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import service.TaskList;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building the reply of the list command, for the first page and for a page deep in the list.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ListBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int tasks;
+
+    private static final ParsedCommand FIRST_PAGE = CommandParser.parse("list");
+    private static final ParsedCommand COUNT_TAGGED = CommandParser.parse("count /tag fun");
+
+    private TaskList todos;
+    private ParsedCommand lastPage;
+
+    @Setup(Level.Trial)
+    public void fillList() {
+        todos = new TaskList();
+        for (int i = 0; i < tasks; i++) {
+            if (i % 2 == 0) {
+                todos.add(new Todo("read book " + i, "fun"));
+            } else {
+                todos.add(new Deadline("return book " + i, "2024-02-01 1800"));
+            }
+        }
+        lastPage = CommandParser.parse("list " + tasks / TaskManager.LIST_PAGE_SIZE);
+    }
+
+    @Benchmark
+    public String firstPage() {
+        return TaskManager.processList(FIRST_PAGE, todos, true, null);
+    }
+
+    @Benchmark
+    public String lastPage() {
+        return TaskManager.processList(lastPage, todos, true, null);
+    }
+
+    @Benchmark
+    public String tagged() {
+        return TaskManager.processCount(COUNT_TAGGED, todos, true);
+    }
+}
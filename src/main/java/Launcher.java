@@ -1,11 +1,22 @@
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
 import javafx.application.Application;
+import snoopy.Snoopy;
 
 /**
  * A launcher class to workaround classpath issues.
  */
 public class Launcher {
     
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        // Command scripts, the HTTP server and format conversion run headless, without starting JavaFX
+        List<String> arguments = Arrays.asList(args);
+        if (arguments.contains("--batch") || arguments.contains("--serve") || arguments.contains("--convert")) {
+            Snoopy.main(args);
+            return;
+        }
         Application.launch(Main.class, args);
     }
-}
\ No newline at end of file
+}
@@ -14,6 +14,7 @@ import view.MainWindow;
 public class Main extends Application {
 
     private Snoopy snoopy = new Snoopy();
+    private MainWindow mainWindow;
 
     /**
      * Starts the GUI for Snoopy.
@@ -27,11 +28,24 @@ public class Main extends Application {
             Scene scene = new Scene(ap);
             stage.setScene(scene);
             stage.setTitle("SnoopyBot");
-            fxmlLoader.<MainWindow>getController().setSnoopy(snoopy);
+            mainWindow = fxmlLoader.<MainWindow>getController();
+            mainWindow.setSnoopy(snoopy);
             stage.show();
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * Saves whatever is still waiting to be written when the window is closed, on the window's command thread.
+     */
+    @Override
+    public void stop() {
+        if (mainWindow != null) {
+            mainWindow.close();
+        } else {
+            snoopy.close();
+        }
+    }
+
 }
@@ -0,0 +1,33 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event for one command, so slow commands line up with GC pauses and I/O in a flight recording.
+ * Costs next to nothing unless a recording is running, e.g. with -XX:StartFlightRecording.
+ */
+@Name("snoopy.Command")
+@Label("Command")
+@Category("Snoopy")
+@Description("A command run on the tasklist")
+public class CommandEvent extends Event {
+
+    @Label("Command")
+    String command;
+
+    /**
+     * Ends the event and commits it if it is being recorded.
+     * @param command name of the kind of command run.
+     */
+    public void finish(String command) {
+        end();
+        if (shouldCommit()) {
+            this.command = command;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event for one write of journal records or a snapshot to disk.
+ */
+@Name("snoopy.Flush")
+@Label("Storage Flush")
+@Category("Snoopy")
+@Description("Journal records or a snapshot written to disk")
+public class FlushEvent extends Event {
+
+    @Label("Bytes Written")
+    @DataAmount
+    long bytes;
+
+    @Label("Snapshot")
+    boolean isSnapshot;
+
+    /**
+     * Ends the event and commits it if it is being recorded.
+     * @param bytes number of bytes written.
+     * @param isSnapshot whether a whole snapshot was written rather than only journal records.
+     */
+    public void finish(long bytes, boolean isSnapshot) {
+        end();
+        if (shouldCommit()) {
+            this.bytes = bytes;
+            this.isSnapshot = isSnapshot;
+            commit();
+        }
+    }
+}
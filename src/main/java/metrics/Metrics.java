@@ -0,0 +1,204 @@
+package metrics;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Where the time goes: latency per kind of command, storage flushes and loads, and how often the indexes and the
+ * render cache answer a lookup. Everything is recorded with uncontended atomic counters, cheap enough to stay on
+ * all the time. Shown by the stats command and, with -Dsnoopy.metrics.dumpSeconds, written to a file periodically.
+ */
+public final class Metrics {
+
+    /**
+     * The indexes the tasklist answers queries from.
+     */
+    public enum Index {
+        SEARCH("find"),
+        TAG("tags"),
+        TIME("due dates"),
+        ID("ids");
+
+        private final String label;
+
+        Index(String label) {
+            this.label = label;
+        }
+    }
+
+    static final String DEFAULT_DUMP_FILE = "./data/snoopy.metrics.txt";
+
+    private static final long STARTED_AT = System.nanoTime();
+    private static final Map<String, LatencyHistogram> COMMANDS = new ConcurrentSkipListMap<>();
+    private static final LatencyHistogram FLUSHES = new LatencyHistogram();
+    private static final LongAdder BYTES_WRITTEN = new LongAdder();
+    private static final LatencyHistogram LOADS = new LatencyHistogram();
+    private static final LongAdder TASKS_LOADED = new LongAdder();
+    private static final LongAdder[] INDEX_LOOKUPS = newAdders(Index.values().length);
+    private static final LongAdder[] INDEX_HITS = newAdders(Index.values().length);
+    private static final LongAdder RENDER_HITS = new LongAdder();
+    private static final LongAdder RENDER_MISSES = new LongAdder();
+
+    private static ScheduledExecutorService dumper;
+
+    private Metrics() {
+    }
+
+    private static LongAdder[] newAdders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    /**
+     * Obtains the histogram the latency of one kind of command is recorded in. Callers look it up once and keep it,
+     * so recording a command costs no map lookup.
+     * @param command name of the kind of command.
+     * @return the histogram of that kind of command.
+     */
+    public static LatencyHistogram commandLatency(String command) {
+        return COMMANDS.computeIfAbsent(command, name -> new LatencyHistogram());
+    }
+
+    /**
+     * Records one write of journal records or a snapshot to disk.
+     * @param nanos how long the write took, including any fsync.
+     * @param bytes number of bytes written.
+     */
+    public static void recordFlush(long nanos, long bytes) {
+        FLUSHES.record(nanos);
+        BYTES_WRITTEN.add(bytes);
+    }
+
+    /**
+     * Records loading the data file at startup.
+     * @param nanos how long loading took, including replaying the journal.
+     * @param tasks number of tasks loaded.
+     */
+    public static void recordLoad(long nanos, int tasks) {
+        LOADS.record(nanos);
+        TASKS_LOADED.add(tasks);
+    }
+
+    /**
+     * Records one query answered by an index.
+     * @param index the index queried.
+     * @param isHit whether the index found anything.
+     */
+    public static void recordIndexLookup(Index index, boolean isHit) {
+        INDEX_LOOKUPS[index.ordinal()].increment();
+        if (isHit) {
+            INDEX_HITS[index.ordinal()].increment();
+        }
+    }
+
+    /**
+     * Records one task shown, and whether its line was already rendered.
+     * @param isHit whether the rendered line was reused.
+     */
+    public static void recordRender(boolean isHit) {
+        (isHit ? RENDER_HITS : RENDER_MISSES).increment();
+    }
+
+    /**
+     * Describes everything recorded since the program started.
+     * @return the report, one line per kind of command, then storage, indexes and the render cache.
+     */
+    public static String report() {
+        double seconds = Math.max(1, System.nanoTime() - STARTED_AT) / 1e9;
+        long commands = 0;
+        StringBuilder lines = new StringBuilder();
+        for (Map.Entry<String, LatencyHistogram> entry : COMMANDS.entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            if (histogram.getCount() == 0) {
+                continue;
+            }
+            commands += histogram.getCount();
+            lines.append(String.format(" %-9s %8d %9s %9s %9s %9s%n", entry.getKey(), histogram.getCount(),
+                    micros(histogram.getMeanNanos()), micros(histogram.getPercentileNanos(0.5)),
+                    micros(histogram.getPercentileNanos(0.99)), micros(histogram.getMaxNanos())));
+        }
+
+        StringBuilder report = new StringBuilder(" Here are my stats since I started ")
+                .append(String.format("%.0f", seconds)).append(" s ago:\n")
+                .append(String.format(" %d commands, %.1f per second%n", commands, commands / seconds))
+                .append(String.format(" %-9s %8s %9s %9s %9s %9s%n", "command", "count", "mean us", "p50 us",
+                        "p99 us", "max us"))
+                .append(lines)
+                .append(String.format(" Storage: %d flushes, mean %s us, p99 %s us, %d bytes written%n",
+                        FLUSHES.getCount(), micros(FLUSHES.getMeanNanos()), micros(FLUSHES.getPercentileNanos(0.99)),
+                        BYTES_WRITTEN.sum()))
+                .append(String.format(" Loading: %d tasks in %s ms%n", TASKS_LOADED.sum(),
+                        millis(LOADS.getTotalNanos())))
+                .append(" Indexes:");
+        for (Index index : Index.values()) {
+            report.append(' ').append(index.label).append(' ')
+                    .append(rate(INDEX_HITS[index.ordinal()].sum(), INDEX_LOOKUPS[index.ordinal()].sum()))
+                    .append(index.ordinal() == Index.values().length - 1 ? "\n" : ",");
+        }
+        report.append(" Render cache: ").append(rate(RENDER_HITS.sum(), RENDER_HITS.sum() + RENDER_MISSES.sum()))
+                .append('\n');
+        return report.toString();
+    }
+
+    private static String rate(long hits, long lookups) {
+        if (lookups == 0) {
+            return "unused";
+        }
+        return String.format("%.1f%% hits of %d", 100.0 * hits / lookups, lookups);
+    }
+
+    private static String micros(long nanos) {
+        return String.format("%.1f", nanos / 1e3);
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.1f", nanos / 1e6);
+    }
+
+    /**
+     * Starts writing the report to a file every snoopy.metrics.dumpSeconds seconds, to
+     * snoopy.metrics.dumpFile or ./data/snoopy.metrics.txt. Does nothing unless the interval is set, or if the
+     * dump was already started.
+     */
+    public static synchronized void startPeriodicDump() {
+        long seconds = Long.getLong("snoopy.metrics.dumpSeconds", 0);
+        if (seconds <= 0 || dumper != null) {
+            return;
+        }
+        Path file = Path.of(System.getProperty("snoopy.metrics.dumpFile", DEFAULT_DUMP_FILE));
+        dumper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "snoopy-metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumper.scheduleAtFixedRate(() -> dump(file), seconds, seconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Replaces the dump file with the current report, through a temporary file so readers never see half of it.
+     */
+    static void dump(Path file) {
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path temporary = parent.resolve(file.getFileName() + ".tmp");
+            Files.writeString(temporary, LocalDateTime.now() + "\n" + report(), StandardCharsets.UTF_8);
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Unable to write metrics: " + e.getMessage());
+        }
+    }
+}
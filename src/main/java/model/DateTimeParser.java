@@ -0,0 +1,152 @@
+package model;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.Year;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Parses the date and time formats accepted for deadlines and events.
+ * The format is picked from the shape of the input (its length and where the separators are), so a date is read in a
+ * single pass without trying formatters one by one. The results match the formatters' SMART resolving, e.g. the 30th
+ * of February becomes the last day of February and 2400 becomes midnight of the next day.
+ */
+public class DateTimeParser {
+
+    private static final int INVALID = -1;
+    private static final int DATE_LENGTH = "yyyy-MM-dd".length();
+    private static final int COMPACT_TIME_LENGTH = DATE_LENGTH + " HHmm".length();
+    private static final int COLON_TIME_LENGTH = DATE_LENGTH + " HH:mm".length();
+
+    // Only used for years written with a sign, e.g. +20244, which have no fixed shape.
+    private static final DateTimeFormatter[] FORMATTERS_WITH_TIME = new DateTimeFormatter[] {
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HHmm"),
+            DateTimeFormatter.ofPattern("dd/MM/yyyy HHmm"),
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm"),
+            DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm"),
+    };
+    private static final DateTimeFormatter[] FORMATTERS_WITHOUT_TIME = new DateTimeFormatter[] {
+            DateTimeFormatter.ofPattern("yyyy-MM-dd"),
+            DateTimeFormatter.ofPattern("dd-MM-yyyy"),
+            DateTimeFormatter.ofPattern("yyyy/MM/dd"),
+            DateTimeFormatter.ofPattern("dd/MM/yyyy"),
+    };
+
+    private DateTimeParser() {
+    }
+
+    /**
+     * Parses a date, with an optional time, in any of the accepted formats.
+     * @param input the date and time as typed by the user.
+     * @return the moment described, at midnight if no time was given, or null if the input matches no format.
+     */
+    public static LocalDateTime parse(String input) {
+        if (input.indexOf('+') >= 0) {
+            return parseWithFormatters(input);
+        }
+        int length = input.length();
+        if (length == DATE_LENGTH) {
+            return toDateTime(parseDate(input, false), 0, 0);
+        } else if (length == COMPACT_TIME_LENGTH && input.charAt(DATE_LENGTH) == ' ') {
+            return toDateTime(parseDate(input, true), digits(input, 11, 2), digits(input, 13, 2));
+        } else if (length == COLON_TIME_LENGTH && input.charAt(DATE_LENGTH) == ' ' && input.charAt(13) == ':') {
+            return toDateTime(parseDate(input, true), digits(input, 11, 2), digits(input, 14, 2));
+        }
+        return null;
+    }
+
+    /**
+     * Reads the date at the start of the input, packed as yyyyMMdd.
+     * Only yyyy-MM-dd and dd/MM/yyyy may be followed by a time.
+     */
+    private static int parseDate(String input, boolean hasTime) {
+        char third = input.charAt(2);
+        char fifth = input.charAt(4);
+        if (fifth == '-' && input.charAt(7) == '-') {
+            return packDate(input, 0, 5, 8);
+        } else if (third == '/' && input.charAt(5) == '/') {
+            return packDate(input, 6, 3, 0);
+        } else if (hasTime) {
+            return INVALID;
+        } else if (third == '-' && input.charAt(5) == '-') {
+            return packDate(input, 6, 3, 0);
+        } else if (fifth == '/' && input.charAt(7) == '/') {
+            return packDate(input, 0, 5, 8);
+        }
+        return INVALID;
+    }
+
+    private static int packDate(String input, int yearAt, int monthAt, int dayAt) {
+        int year = digits(input, yearAt, 4);
+        int month = digits(input, monthAt, 2);
+        int day = digits(input, dayAt, 2);
+        if (year < 1 || month < 1 || month > 12 || day < 1 || day > 31) {
+            return INVALID;
+        }
+        return year * 10000 + month * 100 + day;
+    }
+
+    private static int digits(String input, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = input.charAt(i);
+            if (c < '0' || c > '9') {
+                return INVALID;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static LocalDateTime toDateTime(int date, int hour, int minute) {
+        if (date == INVALID || hour < 0 || hour > 24 || minute < 0 || minute > 59 || (hour == 24 && minute != 0)) {
+            return null;
+        }
+        int year = date / 10000;
+        int month = date / 100 % 100;
+        // like SMART resolving, a day past the end of the month becomes its last day
+        int day = Math.min(date % 100, Month.of(month).length(Year.isLeap(year)));
+        if (hour == 24) {
+            return LocalDateTime.of(year, month, day, 0, 0).plusDays(1);
+        }
+        return LocalDateTime.of(year, month, day, hour, minute);
+    }
+
+    /**
+     * Writes a moment the way it is typed in the yyyy-MM-dd format, leaving out the time if it is midnight.
+     * Parsing the result gives back the same moment.
+     * @param dateTime the moment to write.
+     * @return the moment as yyyy-MM-dd or yyyy-MM-dd HHmm.
+     */
+    public static String format(LocalDateTime dateTime) {
+        String date = dateTime.toLocalDate().toString();
+        int hour = dateTime.getHour();
+        int minute = dateTime.getMinute();
+        if (hour == 0 && minute == 0) {
+            return date;
+        }
+        return date + " " + (char) ('0' + hour / 10) + (char) ('0' + hour % 10) + (char) ('0' + minute / 10)
+                + (char) ('0' + minute % 10);
+    }
+
+    private static LocalDateTime parseWithFormatters(String input) {
+        for (DateTimeFormatter formatter : FORMATTERS_WITH_TIME) {
+            try {
+                return LocalDateTime.parse(input, formatter);
+            } catch (DateTimeParseException e) {
+                // Continue to try the next format
+            }
+        }
+
+        for (DateTimeFormatter formatter : FORMATTERS_WITHOUT_TIME) {
+            try {
+                return LocalDate.parse(input, formatter).atTime(0, 0);
+            } catch (DateTimeParseException e) {
+                // Continue to try the next format
+            }
+        }
+        return null;
+    }
+}
@@ -3,18 +3,18 @@ package model;
 import exceptions.BadDateException;
 
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 
 public class Deadline extends Task {
 
     protected LocalDateTime by;
+    // The date as typed, or null if it was the same as DateTimeParser.format gives for it.
     protected String byString;
 
     public Deadline(String description, String by) {
         super(description);
         this.byString = by;
         try {
-            LocalDateTime moment = super.parseDateTime(by);
+            LocalDateTime moment = parseDateTime(by);
             this.by = moment;
         } catch (Exception e) {
             String expectedDateFormat = "YYYY-MM-DD or YYYY/MM/DD or DD-MM-YYYY or DD/MM/YYYY";
@@ -27,7 +27,7 @@ public class Deadline extends Task {
         super(description, tag);
         this.byString = by;
         try {
-            LocalDateTime moment = super.parseDateTime(by);
+            LocalDateTime moment = parseDateTime(by);
             this.by = moment;
         } catch (Exception e) {
             String expectedDateFormat = "YYYY-MM-DD or YYYY/MM/DD or DD-MM-YYYY or DD/MM/YYYY";
@@ -36,7 +36,26 @@ public class Deadline extends Task {
         }
 
     }
+    /**
+     * Creates a deadline whose date was already parsed, e.g. when loaded from the binary format.
+     * @param description description of the deadline.
+     * @param by when the deadline is due.
+     * @param byString the date as typed, or null to write it in the yyyy-MM-dd format.
+     * @param tag tag of the deadline, or null.
+     */
+    public Deadline(String description, LocalDateTime by, String byString, String tag) {
+        super(description, tag);
+        this.by = by;
+        this.byString = byString;
+    }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LocalDateTime getDueDateTime() {
+        return this.by;
+    }
 
     /**
      * {inheritDoc}
@@ -44,8 +63,16 @@ public class Deadline extends Task {
      * @return String representation of the deadline.
      */
     @Override
-    public String toString() {
-        return "[D]" + super.toString() + " (by: " + by.format(DateTimeFormatter.ofPattern("MMM dd yyyy HHmm")) + ")";
+    protected String render(boolean isDone) {
+        return "[D]" + super.renderStatusAndDescription(isDone) + " (by: " + by.format(DISPLAY_FORMAT) + ")";
+    }
+
+    /**
+     * Obtains the date as it was typed.
+     * @return the date as typed, or as yyyy-MM-dd if it was loaded without its text.
+     */
+    public String getByText() {
+        return byString == null ? DateTimeParser.format(by) : byString;
     }
 
     /**
@@ -53,7 +80,7 @@ public class Deadline extends Task {
      * @return String representation of the deadline that is savable.
      */
     public String fileSavingString() {
-        return "D | " + Integer.toString(super.isDone ? 1 : 0) + " | " + super.description + " | " + byString + " | " + super.getTag();
+        return "D | " + Integer.toString(super.isDone ? 1 : 0) + " | " + super.description + " | " + getByText() + " | " + super.getTag() + super.idField();
     }
 
 }
@@ -1,10 +1,10 @@
 package model;
 
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 
 public class Event extends Task {
 
+    // The dates as typed, or null if they were the same as DateTimeParser.format gives for them.
     protected String fromString;
     protected String toString;
     protected LocalDateTime from;
@@ -14,16 +14,42 @@ public class Event extends Task {
         super(description);
         this.fromString = from;
         this.toString = to;
-        this.from = super.parseDateTime(from);
-        this.to = super.parseDateTime(to);
+        this.from = parseDateTime(from);
+        this.to = parseDateTime(to);
     }
 
     public Event(String description, String from, String to, String tag) {
         super(description, tag);
         this.fromString = from;
         this.toString = to;
-        this.from = super.parseDateTime(from);
-        this.to = super.parseDateTime(to);
+        this.from = parseDateTime(from);
+        this.to = parseDateTime(to);
+    }
+
+    /**
+     * Creates an event whose dates were already parsed, e.g. when loaded from the binary format.
+     * @param description description of the event.
+     * @param from when the event starts.
+     * @param fromString the start as typed, or null to write it in the yyyy-MM-dd format.
+     * @param to when the event ends.
+     * @param toString the end as typed, or null to write it in the yyyy-MM-dd format.
+     * @param tag tag of the event, or null.
+     */
+    public Event(String description, LocalDateTime from, String fromString, LocalDateTime to, String toString,
+            String tag) {
+        super(description, tag);
+        this.from = from;
+        this.fromString = fromString;
+        this.to = to;
+        this.toString = toString;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LocalDateTime getDueDateTime() {
+        return this.from;
     }
 
     /**
@@ -32,8 +58,28 @@ public class Event extends Task {
      * @return String representation of the event.
      */
     @Override
-    public String toString() {
-        return "[E]" + super.toString() + " (from: " + from.format(DateTimeFormatter.ofPattern("MMM dd yyyy HHmm")) + " to: " + to.format(DateTimeFormatter.ofPattern("MMM dd yyyy HHmm")) + ")";
+    protected String render(boolean isDone) {
+        return "[E]" + super.renderStatusAndDescription(isDone) + " (from: " + from.format(DISPLAY_FORMAT) + " to: " + to.format(DISPLAY_FORMAT) + ")";
+    }
+
+    public LocalDateTime getEndDateTime() {
+        return this.to;
+    }
+
+    /**
+     * Obtains the start as it was typed.
+     * @return the start as typed, or as yyyy-MM-dd if it was loaded without its text.
+     */
+    public String getFromText() {
+        return fromString == null ? DateTimeParser.format(from) : fromString;
+    }
+
+    /**
+     * Obtains the end as it was typed.
+     * @return the end as typed, or as yyyy-MM-dd if it was loaded without its text.
+     */
+    public String getToText() {
+        return toString == null ? DateTimeParser.format(to) : toString;
     }
 
     /**
@@ -41,6 +87,6 @@ public class Event extends Task {
      * @return String representation of the event that is savable.
      */
     public String fileSavingString() {
-        return "E | " + Integer.toString(super.isDone ? 1 : 0) + " | " + super.description + " | " + this.fromString + " | " + this.toString + " | " + super.getTag();
+        return "E | " + Integer.toString(super.isDone ? 1 : 0) + " | " + super.description + " | " + getFromText() + " | " + getToText() + " | " + super.getTag() + super.idField();
     }
 }
@@ -1,14 +1,25 @@
 package model;
 
-import java.time.LocalDate;
+import metrics.Metrics;
+
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 
-public abstract class Task {
+public abstract class Task implements Cloneable {
+    // Format dates are shown in, shared so it is not rebuilt for every task shown.
+    protected static final DateTimeFormatter DISPLAY_FORMAT = DateTimeFormatter.ofPattern("MMM dd yyyy HHmm");
+
     protected String description;
-    protected boolean isDone;
+    // Volatile since tasks are read from snapshots of the list while another thread marks them.
+    protected volatile boolean isDone;
     protected String tag;
+    // Stable id given by the tasklist, or 0 until the task is added to one.
+    private int id;
+    // Lines shown for the task when done and not done, each rendered the first time it is shown. Keeping one per
+    // state means marking never has to invalidate a line another thread may be rendering at the same time.
+    private String renderedDone;
+    private String renderedUndone;
 
     public Task(String description) {
         this.description = description;
@@ -21,45 +32,41 @@ public abstract class Task {
         this.tag = tag;
     }
 
-    public LocalDateTime parseDateTime(String input) {
-        DateTimeFormatter[] formattersWithTime = new DateTimeFormatter[] {
-                DateTimeFormatter.ofPattern("yyyy-MM-dd HHmm"),
-                DateTimeFormatter.ofPattern("dd/MM/yyyy HHmm"),
-                DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm"),
-                DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm"),
-        };
-
-        DateTimeFormatter[] formattersWithoutTime = new DateTimeFormatter[] {
-                DateTimeFormatter.ofPattern("yyyy-MM-dd"),
-                DateTimeFormatter.ofPattern("dd-MM-yyyy"),
-                DateTimeFormatter.ofPattern("yyyy/MM/dd"),
-                DateTimeFormatter.ofPattern("dd/MM/yyyy"),
-        };
-
-        for (DateTimeFormatter formatter : formattersWithTime) {
-            try {
-                return LocalDateTime.parse(input, formatter);
-            } catch (DateTimeParseException e) {
-                // Continue to try the next format
-            }
+    /**
+     * Parses a date, with an optional time, in any of the formats accepted for deadlines and events.
+     * @param input the date and time as typed by the user.
+     * @return the moment described, at midnight if no time was given.
+     * @throws DateTimeParseException if the input matches none of the formats.
+     */
+    public static LocalDateTime parseDateTime(String input) {
+        LocalDateTime dateTime = DateTimeParser.parse(input);
+        if (dateTime == null) {
+            throw new DateTimeParseException("Invalid date/time format", input, 0);
         }
-
-        for (DateTimeFormatter formatter : formattersWithoutTime) {
-            try {
-                return LocalDate.parse(input, formatter).atTime(0, 0);
-            } catch (DateTimeParseException e) {
-                // Continue to try the next format
-            }
-        }
-
-        throw new DateTimeParseException("Invalid date/time format", input, 0);
+        return dateTime;
     }
 
 
     public String getStatusIcon() {
+        return getStatusIcon(isDone);
+    }
+
+    private static String getStatusIcon(boolean isDone) {
         return (isDone ? "X" : " "); // mark done task with X
     }
 
+    /**
+     * Obtains the moment the task is due: the deadline of a deadline, or the start of an event.
+     * @return the moment the task is due, or null if it has none.
+     */
+    public LocalDateTime getDueDateTime() {
+        return null;
+    }
+
+    public boolean isDone() {
+        return this.isDone;
+    }
+
     public void markAsDone() {
         this.isDone = true;
     }
@@ -68,13 +75,85 @@ public abstract class Task {
         this.isDone = false;
     }
 
+    /**
+     * Obtains a copy of the task that is done or not, leaving this one as it is for the versions of the list that
+     * still hold it.
+     * @param isDone whether the copy is done.
+     * @return the copy, with the same id.
+     */
+    public Task withDone(boolean isDone) {
+        Task copy;
+        try {
+            copy = (Task) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+        copy.isDone = isDone;
+        return copy;
+    }
+
+    /**
+     * Obtains the line shown for the task, rendering it only the first time it is shown in its current state.
+     * @return String representation of the task.
+     */
     @Override
-    public String toString() {
-        return "[" + this.getStatusIcon() + "] " + this.description + (this.tag == null ? "" : " #" + this.tag);
+    public final String toString() {
+        boolean isDone = this.isDone;
+        String rendered = isDone ? renderedDone : renderedUndone;
+        Metrics.recordRender(rendered != null);
+        if (rendered == null) {
+            rendered = render(isDone);
+            if (isDone) {
+                renderedDone = rendered;
+            } else {
+                renderedUndone = rendered;
+            }
+        }
+        return rendered;
+    }
+
+    /**
+     * Builds the line shown for the task.
+     * @param isDone whether to show the task as done.
+     * @return String representation of the task.
+     */
+    protected abstract String render(boolean isDone);
+
+    /**
+     * Builds the part of the line shared by every kind of task: its status, description and tag.
+     * @param isDone whether to show the task as done.
+     * @return String representation of the status, description and tag.
+     */
+    protected String renderStatusAndDescription(boolean isDone) {
+        return "[" + getStatusIcon(isDone) + "] " + this.description + (this.tag == null ? "" : " #" + this.tag);
     }
 
     public abstract String fileSavingString();
 
+    public int getId() {
+        return this.id;
+    }
+
+    /**
+     * Sets the id of the task. Ids are given out by the tasklist the task is added to.
+     * @param id the id of the task.
+     */
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    /**
+     * Obtains the id as the last field of the stored line, or nothing if the task has no id yet.
+     * @return the id field, including its separator.
+     */
+    protected String idField() {
+        return this.id == 0 ? "" : " | " + this.id;
+    }
+
+    public String getDescription() {
+        return this.description;
+    }
+
     public String getTag() {
         if (this.tag == null) {
             return "";
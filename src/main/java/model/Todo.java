@@ -16,8 +16,8 @@ public class Todo extends Task {
      * @return String representation of the todo.
      */
     @Override
-    public String toString() {
-        return "[T]" + super.toString();
+    protected String render(boolean isDone) {
+        return "[T]" + super.renderStatusAndDescription(isDone);
     }
 
     /**
@@ -25,6 +25,6 @@ public class Todo extends Task {
      * @return String representation of the todo that is savable.
      */
     public String fileSavingString() {
-        return "T | " + Integer.toString(super.isDone ? 1 : 0) + " | " + super.description + " | " + super.tag;
+        return "T | " + Integer.toString(super.isDone ? 1 : 0) + " | " + super.description + " | " + super.getTag() + super.idField();
     }
 }
\ No newline at end of file
@@ -0,0 +1,82 @@
+package server;
+
+import model.Deadline;
+import model.Event;
+import model.Task;
+
+/**
+ * Writes the few JSON shapes the server replies with. Kept by hand since the app has no JSON library.
+ */
+class Json {
+
+    private Json() {
+    }
+
+    /**
+     * Quotes a string as a JSON string literal, or writes null.
+     * @param value the string to quote.
+     * @return the JSON literal.
+     */
+    static String quote(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+            case '"':
+                quoted.append("\\\"");
+                break;
+            case '\\':
+                quoted.append("\\\\");
+                break;
+            case '\n':
+                quoted.append("\\n");
+                break;
+            case '\r':
+                quoted.append("\\r");
+                break;
+            case '\t':
+                quoted.append("\\t");
+                break;
+            default:
+                if (c < 0x20) {
+                    quoted.append(String.format("\\u%04x", (int) c));
+                } else {
+                    quoted.append(c);
+                }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    /**
+     * Writes a task as a JSON object.
+     * @param number the task's number in the list, or 0 if it is not known.
+     * @param task the task to write.
+     * @param json where the object is written to.
+     */
+    static void appendTask(int number, Task task, StringBuilder json) {
+        json.append('{');
+        if (number > 0) {
+            json.append("\"number\":").append(number).append(',');
+        }
+        json.append("\"id\":").append(task.getId())
+                .append(",\"type\":").append(quote(typeOf(task)))
+                .append(",\"done\":").append(task.isDone())
+                .append(",\"description\":").append(quote(task.getDescription()))
+                .append(",\"tag\":").append(quote(task.getTag()))
+                .append(",\"text\":").append(quote(task.toString()))
+                .append('}');
+    }
+
+    private static String typeOf(Task task) {
+        if (task instanceof Deadline) {
+            return "deadline";
+        } else if (task instanceof Event) {
+            return "event";
+        }
+        return "todo";
+    }
+}
@@ -0,0 +1,129 @@
+package server;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Drives a running {@link SnoopyServer} from concurrent clients and reports requests per second and latency
+ * percentiles. Every client sends a mix of 70% reads (list pages and finds) and 30% writes (adds and marks).
+ * Usage: LoadGenerator [baseUrl] [clients] [seconds], by default http://127.0.0.1:8080 with 16 clients for 10 s.
+ */
+public class LoadGenerator {
+
+    private static final String[] WORDS = {"read", "book", "essay", "party", "gym", "groceries", "report", "call"};
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private final String baseUrl;
+
+    private LoadGenerator(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://127.0.0.1:" + SnoopyServer.DEFAULT_PORT;
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        new LoadGenerator(baseUrl).run(clients, seconds);
+    }
+
+    private void run(int clients, int seconds) throws Exception {
+        // a short warm up, so the JIT has compiled both sides before anything is measured
+        runClients(clients, System.nanoTime() + Duration.ofSeconds(Math.min(seconds, 3)).toNanos());
+
+        long start = System.nanoTime();
+        long[][] perClient = runClients(clients, start + Duration.ofSeconds(seconds).toNanos());
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        long[] latencies = Arrays.stream(perClient).flatMapToLong(Arrays::stream).sorted().toArray();
+        if (latencies.length == 0) {
+            System.out.println("No requests succeeded");
+            return;
+        }
+        System.out.printf("%d clients, %d requests in %.1f s: %.0f req/s%n", clients, latencies.length,
+                elapsedSeconds, latencies.length / elapsedSeconds);
+        System.out.printf("latency p50 %.2f ms, p99 %.2f ms, p99.9 %.2f ms, max %.2f ms%n",
+                percentile(latencies, 0.50), percentile(latencies, 0.99), percentile(latencies, 0.999),
+                latencies[latencies.length - 1] / 1e6);
+    }
+
+    private long[][] runClients(int clients, long deadline) throws Exception {
+        ExecutorService executor = SnoopyServer.newRequestExecutor();
+        try {
+            List<Future<long[]>> results = new ArrayList<>(clients);
+            for (int i = 0; i < clients; i++) {
+                results.add(executor.submit(() -> runClient(deadline)));
+            }
+            long[][] latencies = new long[clients][];
+            for (int i = 0; i < clients; i++) {
+                latencies[i] = results.get(i).get();
+            }
+            return latencies;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Sends requests back to back until the deadline.
+     * @return the latency of each successful request, in nanoseconds.
+     */
+    private long[] runClient(long deadline) throws IOException, InterruptedException {
+        long[] latencies = new long[1024];
+        int count = 0;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (System.nanoTime() < deadline) {
+            HttpRequest request = nextRequest(random);
+            long sent = System.nanoTime();
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            long latency = System.nanoTime() - sent;
+            if (response.statusCode() != 200) {
+                continue;
+            }
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latency;
+        }
+        return Arrays.copyOf(latencies, count);
+    }
+
+    private HttpRequest nextRequest(ThreadLocalRandom random) {
+        int pick = random.nextInt(100);
+        String word = WORDS[random.nextInt(WORDS.length)];
+        if (pick < 40) {
+            return get("/api/tasks?limit=20&offset=" + random.nextInt(100));
+        } else if (pick < 70) {
+            return get("/api/tasks/find?q=" + word);
+        } else if (pick < 90) {
+            String desc = URLEncoder.encode(word + " " + random.nextInt(1000), StandardCharsets.UTF_8);
+            return post("/api/tasks?type=todo&tag=load&desc=" + desc, "");
+        }
+        return post("/api/tasks/" + (1 + random.nextInt(20)) + "/mark", "");
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build();
+    }
+
+    private HttpRequest post(String path, String body) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).header(SnoopyServer.CLIENT_HEADER, "load")
+                .POST(HttpRequest.BodyPublishers.ofString(body)).build();
+    }
+
+    private static double percentile(long[] sorted, double fraction) {
+        int i = (int) Math.min(sorted.length - 1, Math.ceil(fraction * sorted.length) - 1);
+        return sorted[Math.max(0, i)] / 1e6;
+    }
+}
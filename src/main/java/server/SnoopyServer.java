@@ -0,0 +1,331 @@
+package server;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import model.Task;
+import service.SearchIndex;
+import service.TaskList;
+import snoopy.Snoopy;
+
+/**
+ * Serves a Snoopy instance over HTTP on the loopback interface, so scripts and dashboards can use a long-running
+ * instance. Replies are JSON:
+ * <ul>
+ *     <li>POST /api/command with a command as the body runs it like the chat window does.</li>
+ *     <li>GET /api/tasks?offset=M&amp;limit=N lists tasks, GET /api/tasks/find?q=words&amp;limit=N finds them.</li>
+ *     <li>POST /api/tasks?type=todo|deadline|event&amp;desc=..&amp;by=..&amp;from=..&amp;to=..&amp;tag=.. adds one.</li>
+ *     <li>POST /api/tasks/{number}/mark or /unmark, and DELETE /api/tasks/{number}, change one.</li>
+ * </ul>
+ * Each request gets its own thread, a virtual one where the JDK has them. Commands run one at a time, while listing and
+ * finding read snapshots of the tasks without waiting for them.
+ * <p>
+ * Listening on the loopback interface does not keep web pages out, since the browser sends their requests from this
+ * machine. So a request must name this server as its Host, which DNS rebinding cannot fake, must come from no page
+ * or one served from here, and must carry the {@value #CLIENT_HEADER} header to change anything, which a page can
+ * only add by asking first and being refused.
+ */
+public class SnoopyServer {
+
+    public static final int DEFAULT_PORT = 8080;
+    private static final int BACKLOG = 1024;
+    private static final int DEFAULT_LIST_LIMIT = 100;
+    // Header requests that change tasks must carry, with any value.
+    public static final String CLIENT_HEADER = "X-Snoopy-Client";
+    private static final List<String> LOCAL_HOSTS = List.of("127.0.0.1", "localhost");
+
+    private final Snoopy snoopy;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Creates a server for the given instance, listening on the loopback interface.
+     * Replies are only sent without delay if sun.net.httpserver.nodelay is true by the time the first server is
+     * created, which {@code --serve} sees to.
+     * @param snoopy the instance whose tasks are served.
+     * @param port the port to listen on, or 0 for any free port.
+     * @throws IOException if the port cannot be bound.
+     */
+    public SnoopyServer(Snoopy snoopy, int port) throws IOException {
+        this.snoopy = snoopy;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), BACKLOG);
+        this.executor = newRequestExecutor();
+        server.setExecutor(executor);
+        server.createContext("/api/command", this::handleCommand);
+        server.createContext("/api/tasks", this::handleTasks);
+    }
+
+    /**
+     * Obtains an executor running each request on a new virtual thread.
+     * Virtual threads only exist from Java 21, so older runtimes fall back to a pool of platform threads.
+     */
+    static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "snoopy-http");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops accepting requests, letting the ones in progress finish for up to a second.
+     */
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handleCommand(HttpExchange exchange) throws IOException {
+        if (!isTrusted(exchange)) {
+            return;
+        }
+        if (!exchange.getRequestMethod().equals("POST")) {
+            sendError(exchange, 405, "Use POST with the command as the body");
+            return;
+        }
+        String command = readBody(exchange).trim();
+        sendReply(exchange, runCommand(command));
+    }
+
+    private void handleTasks(HttpExchange exchange) throws IOException {
+        if (!isTrusted(exchange)) {
+            return;
+        }
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getPath().substring("/api/tasks".length());
+        Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+        if (path.isEmpty() || path.equals("/")) {
+            if (method.equals("GET")) {
+                sendTasks(exchange, params);
+            } else if (method.equals("POST")) {
+                addTask(exchange, params);
+            } else {
+                sendError(exchange, 405, "Use GET to list tasks or POST to add one");
+            }
+            return;
+        }
+        if (path.equals("/find") && method.equals("GET")) {
+            findTasks(exchange, params);
+            return;
+        }
+
+        String[] parts = path.substring(1).split("/");
+        if (parts.length > 2 || !isNumber(parts[0])) {
+            sendError(exchange, 404, "No such endpoint");
+        } else if (parts.length == 1 && method.equals("DELETE")) {
+            sendReply(exchange, runCommand("delete " + parts[0]));
+        } else if (parts.length == 2 && method.equals("POST") && (parts[1].equals("mark")
+                || parts[1].equals("unmark"))) {
+            sendReply(exchange, runCommand(parts[1] + " " + parts[0]));
+        } else {
+            sendError(exchange, 404, "No such endpoint");
+        }
+    }
+
+    private void sendTasks(HttpExchange exchange, Map<String, String> params) throws IOException {
+        int offset;
+        int limit;
+        try {
+            offset = Integer.parseInt(params.getOrDefault("offset", "0"));
+            limit = Integer.parseInt(params.getOrDefault("limit", Integer.toString(DEFAULT_LIST_LIMIT)));
+        } catch (NumberFormatException e) {
+            sendError(exchange, 400, "offset and limit must be numbers");
+            return;
+        }
+        if (offset < 0 || limit < 1) {
+            sendError(exchange, 400, "offset must not be negative and limit must be positive");
+            return;
+        }
+
+        StringBuilder json = new StringBuilder("{\"tasks\":[");
+        TaskList.Snapshot tasks = snoopy.getTaskList().snapshot();
+        int end = (int) Math.min(tasks.size(), (long) offset + limit);
+        for (int i = offset; i < end; i++) {
+            json.append(i == offset ? "" : ",");
+            Json.appendTask(i + 1, tasks.get(i), json);
+        }
+        json.append("],\"total\":").append(tasks.size()).append(",\"version\":").append(tasks.getVersion())
+                .append('}');
+        send(exchange, 200, json.toString());
+    }
+
+    private void findTasks(HttpExchange exchange, Map<String, String> params) throws IOException {
+        String query = params.get("q");
+        if (query == null || query.isBlank()) {
+            sendError(exchange, 400, "Give the words to find as q");
+            return;
+        }
+        int limit;
+        try {
+            limit = Integer.parseInt(params.getOrDefault("limit", Integer.toString(DEFAULT_LIST_LIMIT)));
+        } catch (NumberFormatException e) {
+            sendError(exchange, 400, "limit must be a number");
+            return;
+        }
+        if (limit < 1) {
+            sendError(exchange, 400, "limit must be positive");
+            return;
+        }
+        StringBuilder json = new StringBuilder("{\"tasks\":[");
+        SearchIndex.Result matches = snoopy.getTaskList().search(query, limit);
+        List<Task> best = matches.getTasks();
+        for (int i = 0; i < best.size(); i++) {
+            json.append(i == 0 ? "" : ",");
+            Json.appendTask(0, best.get(i), json);
+        }
+        json.append("],\"total\":").append(matches.getTotal()).append('}');
+        send(exchange, 200, json.toString());
+    }
+
+    private void addTask(HttpExchange exchange, Map<String, String> params) throws IOException {
+        Map<String, String> fields = new HashMap<>(params);
+        fields.putAll(parseQuery(readBody(exchange)));
+        String type = fields.getOrDefault("type", "todo");
+        String desc = fields.get("desc");
+        if (desc == null || desc.isBlank()) {
+            sendError(exchange, 400, "Give the task's description as desc");
+            return;
+        }
+
+        StringBuilder command = new StringBuilder(type).append(' ').append(desc);
+        switch (type) {
+        case "todo":
+            break;
+        case "deadline":
+            command.append(" /by ").append(fields.getOrDefault("by", ""));
+            break;
+        case "event":
+            command.append(" /from ").append(fields.getOrDefault("from", ""))
+                    .append(" /to ").append(fields.getOrDefault("to", ""));
+            break;
+        default:
+            sendError(exchange, 400, "type must be todo, deadline or event");
+            return;
+        }
+        String tag = fields.get("tag");
+        if (tag != null && !tag.isBlank()) {
+            command.append(" /tag ").append(tag);
+        }
+        sendReply(exchange, runCommand(command.toString()));
+    }
+
+    /**
+     * Checks that a request comes from a client on this machine rather than from a web page, replying 403 if not.
+     * @return whether the request can go ahead.
+     */
+    private boolean isTrusted(HttpExchange exchange) throws IOException {
+        Headers headers = exchange.getRequestHeaders();
+        String host = headers.getFirst("Host");
+        if (host == null || !isThisServer(host)) {
+            sendError(exchange, 403, "Host must be 127.0.0.1:" + getPort() + " or localhost:" + getPort());
+            return false;
+        }
+        String origin = headers.getFirst("Origin");
+        if (origin != null && !(origin.startsWith("http://") && isThisServer(origin.substring("http://".length())))) {
+            sendError(exchange, 403, "Requests from other sites are not allowed");
+            return false;
+        }
+        if (!exchange.getRequestMethod().equals("GET") && headers.getFirst(CLIENT_HEADER) == null) {
+            sendError(exchange, 403, "Add an " + CLIENT_HEADER + " header to change tasks");
+            return false;
+        }
+        return true;
+    }
+
+    private boolean isThisServer(String hostAndPort) {
+        for (String host : LOCAL_HOSTS) {
+            if (hostAndPort.equalsIgnoreCase(host + ":" + getPort())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String runCommand(String command) {
+        return snoopy.getResponse(command);
+    }
+
+    private static boolean isNumber(String text) {
+        if (text.isEmpty() || text.length() > 9) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (!Character.isDigit(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decodes name=value pairs, as found in a query string or a form body.
+     */
+    static Map<String, String> parseQuery(String query) {
+        Map<String, String> params = new HashMap<>();
+        if (query == null || query.isEmpty()) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals <= 0) {
+                continue;
+            }
+            params.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream body = exchange.getRequestBody()) {
+            return new String(body.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void sendReply(HttpExchange exchange, String reply) throws IOException {
+        send(exchange, 200, "{\"reply\":" + Json.quote(reply) + "}");
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        send(exchange, status, "{\"error\":" + Json.quote(message) + "}");
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream body = exchange.getResponseBody()) {
+            body.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package service;
+
+import model.Event;
+import model.Task;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The cold segments: tasks moved out of the tasklist by archiving, so they no longer cost anything to load, show or
+ * save. Each archiving writes one segment per month the tasks are due in, or were archived in for todos, and a
+ * segment is never changed once written. Segments are snapshots in the text format, gzipped unless configured
+ * otherwise.
+ * <p>
+ * The manifest lists every segment with the month it covers, its ids and the generation of the first snapshot of the
+ * tasklist that no longer holds its tasks. Segments are only read when a query needs them, and kept once read.
+ */
+class Archive {
+
+    static final String MANIFEST = "segments.txt";
+    static final String COMPRESSED_EXTENSION = ".gz";
+    // Months before and after any a task can be due in.
+    private static final YearMonth EARLIEST = YearMonth.of(-9999, 1);
+    private static final YearMonth LATEST = YearMonth.of(9999, 12);
+
+    /**
+     * One archived segment, as listed in the manifest.
+     */
+    static final class Segment {
+        private final YearMonth month;
+        private final String fileName;
+        private final int count;
+        private final int lastId;
+        private final long generation;
+
+        Segment(YearMonth month, String fileName, int count, int lastId, long generation) {
+            this.month = month;
+            this.fileName = fileName;
+            this.count = count;
+            this.lastId = lastId;
+            this.generation = generation;
+        }
+
+        private String manifestLine() {
+            return month + Storage.FIELD_SEPARATOR + fileName + Storage.FIELD_SEPARATOR + count
+                    + Storage.FIELD_SEPARATOR + lastId + Storage.FIELD_SEPARATOR + generation;
+        }
+    }
+
+    private final Path directory;
+    private final boolean isCompressed;
+    private final boolean isForced;
+    private final List<Segment> segments = new ArrayList<>();
+    // Tasks of the segments read so far, by file name.
+    private final Map<String, List<Task>> loaded = new HashMap<>();
+
+    /**
+     * Creates the archive kept in the given directory. Nothing is read until {@link #open()}.
+     * @param directory where the manifest and the segments are.
+     * @param isCompressed whether new segments are gzipped.
+     * @param isForced whether new segments and the manifest are forced to disk before they count as written.
+     */
+    Archive(Path directory, boolean isCompressed, boolean isForced) {
+        this.directory = directory;
+        this.isCompressed = isCompressed;
+        this.isForced = isForced;
+    }
+
+    /**
+     * Reads the manifest, if there is one yet. A line that cannot be read is skipped, leaving its segment out.
+     * @throws IOException if the manifest cannot be read.
+     */
+    void open() throws IOException {
+        segments.clear();
+        loaded.clear();
+        Path manifest = directory.resolve(MANIFEST);
+        if (!Files.exists(manifest)) {
+            return;
+        }
+        for (String line : Files.readAllLines(manifest, StandardCharsets.UTF_8)) {
+            String[] fields = Storage.splitFields(line);
+            if (fields.length != 5) {
+                continue;
+            }
+            try {
+                segments.add(new Segment(YearMonth.parse(fields[0]), fields[1], Integer.parseInt(fields[2]),
+                        Integer.parseInt(fields[3]), Long.parseLong(fields[4])));
+            } catch (RuntimeException e) {
+                // Skip lines that were edited by hand
+            }
+        }
+    }
+
+    /**
+     * Returns the highest id of any archived task.
+     * @return the highest archived id, or 0 if nothing is archived.
+     */
+    int getLastId() {
+        int lastId = 0;
+        for (Segment segment : segments) {
+            lastId = Math.max(lastId, segment.lastId);
+        }
+        return lastId;
+    }
+
+    /**
+     * Returns number of archived tasks, without reading any segment.
+     * @return number of archived tasks.
+     */
+    int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.count;
+        }
+        return size;
+    }
+
+    /**
+     * Obtains the segments whose tasks were still in the tasklist as of the given snapshot generation, which is only
+     * the case when a crash came between writing them and the snapshot without their tasks.
+     * @param generation generation of the snapshot loaded.
+     * @return the segments archived after it.
+     */
+    List<Segment> archivedAfter(long generation) {
+        List<Segment> after = new ArrayList<>();
+        for (Segment segment : segments) {
+            if (segment.generation > generation) {
+                after.add(segment);
+            }
+        }
+        return after;
+    }
+
+    /**
+     * Tells which month a task is archived under: the month it is due in, or for a todo the month it was archived.
+     * @param task the task.
+     * @return the month of its segment.
+     */
+    static YearMonth monthOf(Task task) {
+        LocalDateTime due = task.getDueDateTime();
+        return due == null ? YearMonth.from(LocalDate.now()) : YearMonth.from(due);
+    }
+
+    /**
+     * Tells whether a task is finished with: done, or an event that is over.
+     * @param task the task.
+     * @param now the current time.
+     * @return whether the task can be archived.
+     */
+    static boolean isFinished(Task task, LocalDateTime now) {
+        return task.isDone() || task instanceof Event && ((Event) task).getEndDateTime().isBefore(now);
+    }
+
+    /**
+     * Writes the tasks as new segments, one per month, then adds them to the manifest.
+     * @param tasks the tasks to archive, in id order.
+     * @param generation generation of the first snapshot of the tasklist that will not hold them anymore.
+     * @throws IOException if the segments or the manifest cannot be written.
+     */
+    void add(List<Task> tasks, long generation) throws IOException {
+        Map<YearMonth, List<Task>> byMonth = new TreeMap<>();
+        for (Task task : tasks) {
+            byMonth.computeIfAbsent(monthOf(task), month -> new ArrayList<>()).add(task);
+        }
+        Files.createDirectories(directory);
+        List<Segment> added = new ArrayList<>();
+        for (Map.Entry<YearMonth, List<Task>> entry : byMonth.entrySet()) {
+            List<Task> monthTasks = entry.getValue();
+            String fileName = nextFileName(entry.getKey());
+            writeAtomically(fileName, SnapshotFile.encode(TaskList.snapshotOf(monthTasks), generation), isCompressed);
+            added.add(new Segment(entry.getKey(), fileName, monthTasks.size(),
+                    monthTasks.get(monthTasks.size() - 1).getId(), generation));
+        }
+
+        StringBuilder manifest = new StringBuilder();
+        for (Segment segment : segments) {
+            manifest.append(segment.manifestLine()).append('\n');
+        }
+        for (Segment segment : added) {
+            manifest.append(segment.manifestLine()).append('\n');
+        }
+        writeAtomically(MANIFEST, new ByteBuffer[] {StandardCharsets.UTF_8.encode(manifest.toString())}, false);
+        segments.addAll(added);
+    }
+
+    /**
+     * Picks a file name for a new segment of the month, since segments already written for it stay as they are.
+     */
+    private String nextFileName(YearMonth month) {
+        int number = 1;
+        for (Segment segment : segments) {
+            if (segment.month.equals(month)) {
+                number++;
+            }
+        }
+        String fileName;
+        do {
+            fileName = month + "." + number++ + ".txt" + (isCompressed ? COMPRESSED_EXTENSION : "");
+        } while (Files.exists(directory.resolve(fileName)));
+        return fileName;
+    }
+
+    /**
+     * Writes a file through a temporary one, so a crash never leaves half of it.
+     */
+    private void writeAtomically(String fileName, ByteBuffer[] contents, boolean isGzipped) throws IOException {
+        Path temporary = directory.resolve(fileName + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            if (isGzipped) {
+                // finished rather than closed, which would close the channel before it is forced
+                GZIPOutputStream output = new GZIPOutputStream(Channels.newOutputStream(channel), 1 << 16);
+                for (ByteBuffer buffer : contents) {
+                    byte[] bytes = new byte[buffer.remaining()];
+                    buffer.duplicate().get(bytes);
+                    output.write(bytes);
+                }
+                output.finish();
+            } else {
+                ByteBuffer last = contents[contents.length - 1];
+                while (last.hasRemaining()) {
+                    channel.write(contents);
+                }
+            }
+            if (isForced) {
+                channel.force(false);
+            }
+        }
+        Files.move(temporary, directory.resolve(fileName), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Obtains the tasks of a segment, reading it the first time.
+     * @param segment the segment.
+     * @return its tasks, in id order.
+     * @throws IOException if the segment cannot be read.
+     */
+    List<Task> tasksOf(Segment segment) throws IOException {
+        List<Task> tasks = loaded.get(segment.fileName);
+        if (tasks != null) {
+            return tasks;
+        }
+        Path file = directory.resolve(segment.fileName);
+        byte[] contents;
+        if (segment.fileName.endsWith(COMPRESSED_EXTENSION)) {
+            try (InputStream input = new GZIPInputStream(Files.newInputStream(file), 1 << 16)) {
+                contents = input.readAllBytes();
+            }
+        } else {
+            contents = Files.readAllBytes(file);
+        }
+        SnapshotFile snapshot = SnapshotFile.read(ByteBuffer.wrap(contents));
+        if (!snapshot.isIntact()) {
+            throw new IOException("Archived segment " + file + " is damaged");
+        }
+        tasks = snapshot.getTasks();
+        loaded.put(segment.fileName, tasks);
+        return tasks;
+    }
+
+    /**
+     * Obtains every archived task, reading every segment.
+     * @return the archived tasks, by month and then in id order.
+     * @throws IOException if a segment cannot be read.
+     */
+    List<Task> all() throws IOException {
+        return tasksIn(EARLIEST, LATEST);
+    }
+
+    /**
+     * Obtains the archived tasks of the segments of the given months, reading only those.
+     * @param first the first month.
+     * @param last the last month.
+     * @return the tasks archived under those months, by month and then in id order.
+     * @throws IOException if a segment cannot be read.
+     */
+    List<Task> tasksIn(YearMonth first, YearMonth last) throws IOException {
+        List<Segment> covered = new ArrayList<>();
+        for (Segment segment : segments) {
+            if (!segment.month.isBefore(first) && !segment.month.isAfter(last)) {
+                covered.add(segment);
+            }
+        }
+        covered.sort(Comparator.comparing((Segment segment) -> segment.month));
+        List<Task> tasks = new ArrayList<>();
+        for (Segment segment : covered) {
+            tasks.addAll(tasksOf(segment));
+        }
+        return tasks;
+    }
+
+    /**
+     * Obtains the archived deadlines and events due between the two moments, reading only the segments of the
+     * months in between.
+     * @param start the earliest moment, included, or null for no limit.
+     * @param end the latest moment.
+     * @param isEndIncluded whether tasks due exactly at the end count.
+     * @return the tasks due in between, earliest first.
+     * @throws IOException if a segment cannot be read.
+     */
+    List<Task> dueBetween(LocalDateTime start, LocalDateTime end, boolean isEndIncluded) throws IOException {
+        List<Task> due = new ArrayList<>();
+        for (Task task : tasksIn(start == null ? EARLIEST : YearMonth.from(start), YearMonth.from(end))) {
+            LocalDateTime dueAt = task.getDueDateTime();
+            if (dueAt != null && (start == null || !dueAt.isBefore(start))
+                    && (isEndIncluded ? !dueAt.isAfter(end) : dueAt.isBefore(end))) {
+                due.add(task);
+            }
+        }
+        due.sort(Comparator.comparing(Task::getDueDateTime));
+        return due;
+    }
+}
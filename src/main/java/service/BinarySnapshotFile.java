@@ -0,0 +1,365 @@
+package service;
+
+import model.DateTimeParser;
+import model.Deadline;
+import model.Event;
+import model.Task;
+import model.Todo;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * The snapshot file in the binary format, about half the size of the text format and loaded without parsing a
+ * single date.
+ * Layout, with every number a varint:
+ * <pre>
+ * "SNPY" version generation task-count tag-count (tag-length tag-utf8)*
+ * (flags id description-length description-utf8 [tag-number] [minutes [text-length text-utf8]]*)*
+ * CRC32 of everything before it, 4 bytes
+ * </pre>
+ * The flags give the kind of task, whether it is done and which dates also keep the text they were typed as. Dates
+ * are minutes since 1970-01-01 00:00, and their text is only stored when it differs from what
+ * {@link DateTimeParser#format(LocalDateTime)} writes for them. Tags are numbered in a table so a tag shared
+ * by many tasks is stored once.
+ */
+class BinarySnapshotFile {
+
+    static final byte[] MAGIC = {'S', 'N', 'P', 'Y'};
+    static final int FORMAT_VERSION = 1;
+
+    private static final int TYPE_MASK = 0x3;
+    private static final int TODO = 0;
+    private static final int DEADLINE = 1;
+    private static final int EVENT = 2;
+    private static final int DONE = 1 << 2;
+    private static final int HAS_TAG = 1 << 3;
+    private static final int FIRST_DATE_TEXT = 1 << 4;
+    private static final int SECOND_DATE_TEXT = 1 << 5;
+    private static final int CHECKSUM_LENGTH = 4;
+
+    private byte[] bytes = new byte[256];
+    private int length;
+
+    private BinarySnapshotFile() {
+    }
+
+    /**
+     * Tells whether the file is in the binary format, from its first bytes.
+     * @param channel the open snapshot file.
+     * @return whether the file starts with the binary format's magic.
+     * @throws IOException if the file cannot be read.
+     */
+    static boolean isBinary(FileChannel channel) throws IOException {
+        ByteBuffer start = ByteBuffer.allocate(MAGIC.length);
+        while (start.hasRemaining() && channel.read(start, start.position()) >= 0) {
+            // keep reading until the magic is in
+        }
+        return Arrays.equals(start.array(), MAGIC) && start.position() == MAGIC.length;
+    }
+
+    /**
+     * Encodes every task as a snapshot in the binary format.
+     * @param snapshot the tasks, in order.
+     * @param generation the generation of the snapshot.
+     * @return the bytes of the snapshot: the header and tag table, the tasks, then the checksum.
+     */
+    static ByteBuffer[] encode(TaskList.Snapshot snapshot, long generation) {
+        Map<String, Integer> tagNumbers = new HashMap<>();
+        List<String> tags = new ArrayList<>();
+        BinarySnapshotFile body = new BinarySnapshotFile();
+        body.bytes = new byte[Math.max(256, snapshot.size() * 32)];
+        snapshot.forEach(task -> body.writeTask(task, tagNumbers, tags));
+
+        BinarySnapshotFile header = new BinarySnapshotFile();
+        header.writeBytes(MAGIC);
+        header.writeVarLong(FORMAT_VERSION);
+        header.writeVarLong(generation);
+        header.writeVarLong(snapshot.size());
+        header.writeVarLong(tags.size());
+        for (String tag : tags) {
+            header.writeString(tag);
+        }
+
+        CRC32 checksum = new CRC32();
+        checksum.update(header.bytes, 0, header.length);
+        checksum.update(body.bytes, 0, body.length);
+        ByteBuffer footer = ByteBuffer.allocate(CHECKSUM_LENGTH).putInt((int) checksum.getValue()).flip();
+        return new ByteBuffer[] {
+            ByteBuffer.wrap(header.bytes, 0, header.length), ByteBuffer.wrap(body.bytes, 0, body.length), footer
+        };
+    }
+
+    private void writeTask(Task task, Map<String, Integer> tagNumbers, List<String> tags) {
+        String tag = task.getTag();
+        int flags = task.isDone() ? DONE : 0;
+        if (!tag.isEmpty()) {
+            flags |= HAS_TAG;
+        }
+        String firstText = null;
+        String secondText = null;
+        if (task instanceof Deadline) {
+            Deadline deadline = (Deadline) task;
+            flags |= DEADLINE;
+            firstText = textIfNeeded(deadline.getByText(), deadline.getDueDateTime());
+        } else if (task instanceof Event) {
+            Event event = (Event) task;
+            flags |= EVENT;
+            firstText = textIfNeeded(event.getFromText(), event.getDueDateTime());
+            secondText = textIfNeeded(event.getToText(), event.getEndDateTime());
+        }
+        flags |= (firstText == null ? 0 : FIRST_DATE_TEXT) | (secondText == null ? 0 : SECOND_DATE_TEXT);
+
+        writeVarLong(flags);
+        writeVarLong(task.getId());
+        writeString(task.getDescription());
+        if (!tag.isEmpty()) {
+            writeVarLong(tagNumbers.computeIfAbsent(tag, key -> {
+                tags.add(key);
+                return tags.size() - 1;
+            }));
+        }
+        if (task instanceof Deadline) {
+            writeDate(task.getDueDateTime(), firstText);
+        } else if (task instanceof Event) {
+            writeDate(task.getDueDateTime(), firstText);
+            writeDate(((Event) task).getEndDateTime(), secondText);
+        }
+    }
+
+    /**
+     * Obtains the text a date was typed as, if it cannot be rebuilt from the date itself.
+     */
+    private static String textIfNeeded(String text, LocalDateTime dateTime) {
+        return text.equals(DateTimeParser.format(dateTime)) ? null : text;
+    }
+
+    private void writeDate(LocalDateTime dateTime, String text) {
+        long minutes = dateTime.toEpochSecond(ZoneOffset.UTC) / 60;
+        // zigzag, so dates before 1970 stay short too
+        writeVarLong((minutes << 1) ^ (minutes >> 63));
+        if (text != null) {
+            writeString(text);
+        }
+    }
+
+    private void writeString(String text) {
+        byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(utf8.length);
+        writeBytes(utf8);
+    }
+
+    private void writeVarLong(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[length++] = (byte) value;
+    }
+
+    private void writeBytes(byte[] source) {
+        ensureCapacity(source.length);
+        System.arraycopy(source, 0, bytes, length, source.length);
+        length += source.length;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+        }
+    }
+
+    /**
+     * Reads a snapshot in the binary format. A snapshot cut short or garbled is read as far as it goes and reported
+     * as not intact.
+     * @param channel the open snapshot file.
+     * @param size size of the file.
+     * @return the snapshot read.
+     * @throws IOException if the file cannot be read.
+     */
+    static SnapshotFile read(FileChannel channel, long size) throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Snapshot is too large");
+        }
+        MappedByteBuffer file = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        List<Task> tasks = new ArrayList<>();
+        long generation = 0;
+        boolean isIntact = false;
+        try {
+            file.position(MAGIC.length);
+            if (readVarLong(file) != FORMAT_VERSION) {
+                throw new IOException("Unknown snapshot version");
+            }
+            generation = readVarLong(file);
+            long count = readVarLong(file);
+            long tagCount = readVarLong(file);
+            if (tagCount > file.remaining()) {
+                throw new IllegalArgumentException("Tag table runs past the end of the snapshot");
+            }
+            String[] tags = new String[(int) tagCount];
+            for (int i = 0; i < tags.length; i++) {
+                tags[i] = readString(file);
+            }
+            for (long i = 0; i < count; i++) {
+                tasks.add(readTask(file, tags));
+            }
+
+            int end = file.position();
+            if (end + CHECKSUM_LENGTH == size) {
+                CRC32 checksum = new CRC32();
+                checksum.update(file.duplicate().position(0).limit(end));
+                isIntact = file.getInt(end) == (int) checksum.getValue();
+            }
+        } catch (RuntimeException e) {
+            // Cut short or garbled, e.g. running out of bytes or reading a date out of range; keep what was read
+        }
+        return new SnapshotFile(tasks, generation, isIntact);
+    }
+
+    /**
+     * Finds where every task of a snapshot in the binary format starts, skipping over them without decoding any.
+     * @param file the whole snapshot file, mapped.
+     * @return the index of the snapshot, or null if it is cut short or garbled and has to be read in full.
+     */
+    static SnapshotIndex index(MappedByteBuffer file) {
+        try {
+            file.position(MAGIC.length);
+            if (readVarLong(file) != FORMAT_VERSION) {
+                return null;
+            }
+            long generation = readVarLong(file);
+            long count = readVarLong(file);
+            long tagCount = readVarLong(file);
+            if (count >= file.remaining() || tagCount > file.remaining()) {
+                return null;
+            }
+            String[] tags = new String[(int) tagCount];
+            for (int i = 0; i < tags.length; i++) {
+                tags[i] = readString(file);
+            }
+            int[] offsets = new int[(int) count + 1];
+            for (int i = 0; i < count; i++) {
+                offsets[i] = file.position();
+                skipTask(file);
+            }
+            int end = file.position();
+            offsets[(int) count] = end;
+            if (end + CHECKSUM_LENGTH != file.capacity()) {
+                return null;
+            }
+            return new SnapshotIndex(file, offsets, tags, generation, end, file.getInt(end) & 0xFFFFFFFFL);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static void skipTask(ByteBuffer file) {
+        int flags = (int) readVarLong(file);
+        readVarLong(file);
+        skipString(file);
+        if ((flags & HAS_TAG) != 0) {
+            readVarLong(file);
+        }
+        int type = flags & TYPE_MASK;
+        if (type == DEADLINE || type == EVENT) {
+            readVarLong(file);
+            if ((flags & FIRST_DATE_TEXT) != 0) {
+                skipString(file);
+            }
+        }
+        if (type == EVENT) {
+            readVarLong(file);
+            if ((flags & SECOND_DATE_TEXT) != 0) {
+                skipString(file);
+            }
+        }
+    }
+
+    /**
+     * Decodes the task starting at the position of the buffer, leaving the position after it.
+     * @param file the snapshot, positioned at the start of a task.
+     * @param tags the tag table of the snapshot.
+     * @return the task read.
+     */
+    static Task readTask(ByteBuffer file, String[] tags) {
+        int flags = (int) readVarLong(file);
+        int id = (int) readVarLong(file);
+        String description = readString(file);
+        String tag = (flags & HAS_TAG) == 0 ? null : tags[(int) readVarLong(file)];
+        Task task;
+        switch (flags & TYPE_MASK) {
+        case TODO:
+            task = new Todo(description, tag);
+            break;
+        case DEADLINE:
+            LocalDateTime by = readDate(file);
+            task = new Deadline(description, by, readTextIf(file, flags, FIRST_DATE_TEXT), tag);
+            break;
+        case EVENT:
+            LocalDateTime from = readDate(file);
+            String fromText = readTextIf(file, flags, FIRST_DATE_TEXT);
+            LocalDateTime to = readDate(file);
+            task = new Event(description, from, fromText, to, readTextIf(file, flags, SECOND_DATE_TEXT), tag);
+            break;
+        default:
+            throw new IllegalArgumentException("Unknown task type in flags " + flags);
+        }
+        task.setId(id);
+        if ((flags & DONE) != 0) {
+            task.markAsDone();
+        }
+        return task;
+    }
+
+    private static LocalDateTime readDate(ByteBuffer file) {
+        long zigzag = readVarLong(file);
+        long minutes = (zigzag >>> 1) ^ -(zigzag & 1);
+        return LocalDateTime.ofEpochSecond(minutes * 60, 0, ZoneOffset.UTC);
+    }
+
+    private static String readTextIf(ByteBuffer file, int flags, int flag) {
+        return (flags & flag) == 0 ? null : readString(file);
+    }
+
+    private static String readString(ByteBuffer file) {
+        int utf8Length = (int) readVarLong(file);
+        if (utf8Length < 0 || utf8Length > file.remaining()) {
+            throw new IllegalArgumentException("String runs past the end of the snapshot");
+        }
+        byte[] utf8 = new byte[utf8Length];
+        file.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private static void skipString(ByteBuffer file) {
+        int utf8Length = (int) readVarLong(file);
+        if (utf8Length < 0 || utf8Length > file.remaining()) {
+            throw new IllegalArgumentException("String runs past the end of the snapshot");
+        }
+        file.position(file.position() + utf8Length);
+    }
+
+    private static long readVarLong(ByteBuffer file) {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            byte next = file.get();
+            value |= (long) (next & 0x7F) << shift;
+            if (next >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Varint is too long");
+    }
+}
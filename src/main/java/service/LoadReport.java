@@ -0,0 +1,108 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Summary of loading the data file: how many tasks were loaded, which lines were quarantined and whether the tasks
+ * had to be recovered from an earlier snapshot.
+ */
+public class LoadReport {
+
+    /**
+     * A stored line that could not be turned into a task.
+     */
+    public static class BadLine {
+        private final long lineNumber;
+        private final String line;
+        private final String reason;
+
+        public BadLine(long lineNumber, String line, String reason) {
+            this.lineNumber = lineNumber;
+            this.line = line;
+            this.reason = reason;
+        }
+
+        public long getLineNumber() {
+            return lineNumber;
+        }
+
+        public String getLine() {
+            return line;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+    }
+
+    private final List<BadLine> badLines = new ArrayList<>();
+    private int loaded;
+    private String quarantinePath;
+    private String recovery;
+
+    void addLoaded() {
+        loaded++;
+    }
+
+    void addLoaded(int count) {
+        loaded += count;
+    }
+
+    void addBadLine(long lineNumber, String line, String reason) {
+        badLines.add(new BadLine(lineNumber, line, reason));
+    }
+
+    void setQuarantinePath(String quarantinePath) {
+        this.quarantinePath = quarantinePath;
+    }
+
+    void setRecovery(String recovery) {
+        this.recovery = recovery;
+    }
+
+    /**
+     * Returns how the tasks were recovered, if the snapshot was damaged.
+     * @return what was done to recover, or null if the snapshot was intact.
+     */
+    public String getRecovery() {
+        return recovery;
+    }
+
+    /**
+     * Returns number of tasks loaded from the data file.
+     * @return number of tasks loaded.
+     */
+    public int getLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Returns the lines that were moved to the quarantine file.
+     * @return the quarantined lines, in file order.
+     */
+    public List<BadLine> getBadLines() {
+        return badLines;
+    }
+
+    public boolean isClean() {
+        return badLines.isEmpty() && recovery == null;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder("Loaded " + loaded + " tasks.");
+        if (recovery != null) {
+            report.append(' ').append(recovery);
+        }
+        if (badLines.isEmpty()) {
+            return report.toString();
+        }
+        report.append(" Quarantined ").append(badLines.size()).append(" bad lines into ").append(quarantinePath)
+                .append(":");
+        for (BadLine badLine : badLines) {
+            report.append("\n line ").append(badLine.getLineNumber()).append(": ").append(badLine.getReason());
+        }
+        return report.toString();
+    }
+}
@@ -1,28 +1,129 @@
 package service;
 
-import java.util.NoSuchElementException;
-import java.util.Scanner;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
-public class Parser {
+public class Parser implements Closeable {
 
+    private static final int BUFFER_SIZE = 1 << 16;
+    // Lines handed from the read-ahead thread to the command loop at a time.
+    private static final int CHUNK_SIZE = 1024;
+    private static final int READ_AHEAD_CHUNKS = 8;
+    private static final List<String> END_OF_INPUT = new ArrayList<>();
+
+    private final BufferedReader reader;
+    private BlockingQueue<List<String>> chunks;
+    private Thread readerThread;
+    private Iterator<String> chunk;
+    private boolean isExhausted;
+
+    /**
+     * Creates a parser reading the user's commands from standard input.
+     */
+    public Parser() {
+        this(new InputStreamReader(System.in));
+    }
+
+    /**
+     * Creates a parser reading commands from the given input, one per line.
+     * @param input where the commands are read from.
+     */
+    public Parser(Reader input) {
+        this.reader = new BufferedReader(input, BUFFER_SIZE);
+    }
 
     /**
      * Obtains the user's input command.
-     * @return The user's commands from the scanner.
+     * @return The user's next command, or null once the input has ended.
      */
     public String parse() {
-        String s;
-        Scanner scanner = new Scanner(System.in);
+        if (chunks != null) {
+            return parseAhead();
+        }
         try {
-            s = scanner.nextLine(); // Use the same Scanner object
-            return s;
-        } catch (NoSuchElementException e) {
+            return reader.readLine();
+        } catch (IOException e) {
             return null;
         }
     }
 
+    /**
+     * Starts reading commands on a background thread, so reading the next commands overlaps with running the
+     * current ones. Meant for command scripts, where the whole input is available up front.
+     */
+    public void readAhead() {
+        chunks = new ArrayBlockingQueue<>(READ_AHEAD_CHUNKS);
+        readerThread = new Thread(this::fillChunks, "snoopy-command-reader");
+        readerThread.setDaemon(true);
+        readerThread.start();
+    }
 
+    private void fillChunks() {
+        List<String> lines = new ArrayList<>(CHUNK_SIZE);
+        try {
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    lines.add(line);
+                    if (lines.size() == CHUNK_SIZE) {
+                        chunks.put(lines);
+                        lines = new ArrayList<>(CHUNK_SIZE);
+                    }
+                }
+            } catch (IOException e) {
+                // Treat an unreadable input as ended
+            }
+            if (!lines.isEmpty()) {
+                chunks.put(lines);
+            }
+            chunks.put(END_OF_INPUT);
+        } catch (InterruptedException e) {
+            // Nobody is waiting for the rest anymore
+        } finally {
+            closeReader();
+        }
+    }
 
+    /**
+     * Stops reading commands and closes the input. A read-ahead thread waiting for room for more commands is
+     * stopped, and closes the input itself once it is.
+     */
+    @Override
+    public void close() {
+        if (readerThread != null) {
+            readerThread.interrupt();
+        } else {
+            closeReader();
+        }
+    }
 
+    private void closeReader() {
+        try {
+            reader.close();
+        } catch (IOException e) {
+            // Nothing more is read from it either way
+        }
+    }
 
+    private String parseAhead() {
+        try {
+            while (!isExhausted && (chunk == null || !chunk.hasNext())) {
+                List<String> lines = chunks.take();
+                isExhausted = lines == END_OF_INPUT;
+                chunk = lines.iterator();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            isExhausted = true;
+        }
+        return isExhausted ? null : chunk.next();
+    }
 }
@@ -0,0 +1,396 @@
+package service;
+
+import model.Task;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Inverted index from each word of a task's description and tag to the tasks containing it, ignoring case.
+ * Kept up to date by TaskList, so find only touches the tasks that share a word with the query.
+ * <p>
+ * A word of the query also finds the words it starts, and words within a few typos of it: the words are kept sorted
+ * so the ones starting with the query word are a range of them, and the words with letters only are indexed by their
+ * bigrams so the ones sharing enough bigrams with it are the only ones whose edit distance is worked out. Tasks are
+ * scored by how closely they match every word of the query, and only the best ones are kept, in a bounded heap.
+ */
+public class SearchIndex {
+
+    // Shortest query word that also finds the words it starts.
+    private static final int MIN_PREFIX_LENGTH = 2;
+    // Shortest query words allowed one and two typos.
+    private static final int ONE_TYPO_LENGTH = 3;
+    private static final int TWO_TYPOS_LENGTH = 6;
+    // Most words of the index a query word can match for its tasks to be checked in their postings.
+    private static final int MAX_POSTINGS_CHECKED = 16;
+    // How much a word found each way counts towards the score of a task.
+    private static final double EXACT_WEIGHT = 1.0;
+    private static final double PREFIX_WEIGHT = 0.8;
+    private static final double[] TYPO_WEIGHTS = {EXACT_WEIGHT, 0.6, 0.4};
+    // Marks the start and end of a word, so its first and last letters count as bigrams too.
+    private static final char WORD_START = '^';
+    private static final char WORD_END = '$';
+
+    /**
+     * The best tasks found for a query and how many matched in all.
+     */
+    public static final class Result {
+        private final List<Task> tasks;
+        private final int total;
+
+        private Result(List<Task> tasks, int total) {
+            this.tasks = tasks;
+            this.total = total;
+        }
+
+        /**
+         * Returns the best matching tasks.
+         * @return the tasks, best first and in list order among equally good ones.
+         */
+        public List<Task> getTasks() {
+            return tasks;
+        }
+
+        /**
+         * Returns the number of tasks matching the query, including those left out of the best ones.
+         * @return the number of matching tasks.
+         */
+        public int getTotal() {
+            return total;
+        }
+    }
+
+    /**
+     * A task matching the query and its score, ordered worst first so the heap drops the worst match.
+     */
+    private static final class Scored {
+        private static final Comparator<Scored> WORST_FIRST = Comparator
+                .comparingDouble((Scored scored) -> scored.score)
+                .thenComparingInt(scored -> -scored.task.getId());
+
+        private final Task task;
+        private final double score;
+
+        private Scored(Task task, double score) {
+            this.task = task;
+            this.score = score;
+        }
+    }
+
+    // Tasks per word, folded to lower case.
+    private final Map<String, Set<Task>> postings = new HashMap<>();
+    // Every word in the index, sorted so the words starting with a prefix are next to each other.
+    private final NavigableSet<String> words = new TreeSet<>();
+    // Words with no digits per bigram of theirs, to find the words a typo away. Words with digits are numbers,
+    // dates or codes, which are not misspelt the way words are.
+    private final Map<String, Set<String>> wordsByBigram = new HashMap<>();
+
+    /**
+     * Adds the words of the task to the index.
+     * @param task the task that was added to the list.
+     */
+    public void add(Task task) {
+        for (String token : tokens(task)) {
+            Set<Task> tasks = postings.get(token);
+            if (tasks == null) {
+                tasks = new HashSet<>();
+                postings.put(token, tasks);
+                addWord(token);
+            }
+            tasks.add(task);
+        }
+    }
+
+    /**
+     * Removes the words of the task from the index.
+     * @param task the task that was removed from the list.
+     */
+    public void remove(Task task) {
+        for (String token : tokens(task)) {
+            Set<Task> tasks = postings.get(token);
+            if (tasks == null) {
+                continue;
+            }
+            tasks.remove(task);
+            if (tasks.isEmpty()) {
+                postings.remove(token);
+                removeWord(token);
+            }
+        }
+    }
+
+    private void addWord(String word) {
+        words.add(word);
+        if (isSpellable(word)) {
+            for (String bigram : bigrams(word)) {
+                wordsByBigram.computeIfAbsent(bigram, key -> new HashSet<>()).add(word);
+            }
+        }
+    }
+
+    private void removeWord(String word) {
+        words.remove(word);
+        if (isSpellable(word)) {
+            for (String bigram : bigrams(word)) {
+                Set<String> withBigram = wordsByBigram.get(bigram);
+                if (withBigram != null && withBigram.remove(word) && withBigram.isEmpty()) {
+                    wordsByBigram.remove(bigram);
+                }
+            }
+        }
+    }
+
+    /**
+     * Obtains every task containing every word of the query, exactly, as the start of a word or with a typo or two.
+     * @param query words to look for, separated by spaces. A tag can be given with or without its #.
+     * @return the matching tasks, best first.
+     */
+    public List<Task> find(String query) {
+        return search(query, Integer.MAX_VALUE).getTasks();
+    }
+
+    /**
+     * Obtains the tasks matching every word of the query best. A task scores the most for a word it contains
+     * exactly, less for a word starting with it, and less again the more typos away its closest word is.
+     * The words are looked up starting from the one matching the fewest tasks, and the other words are only checked
+     * against the tasks it matched.
+     * @param query words to look for, separated by spaces. A tag can be given with or without its #.
+     * @param limit most tasks to return.
+     * @return the best tasks and the number matching.
+     */
+    public Result search(String query, int limit) {
+        List<Map<String, Double>> matches = new ArrayList<>();
+        for (String word : split(query)) {
+            Map<String, Double> matching = matchingWords(word);
+            if (matching.isEmpty()) {
+                return new Result(List.of(), 0);
+            }
+            matches.add(matching);
+        }
+        if (matches.isEmpty()) {
+            return new Result(List.of(), 0);
+        }
+
+        Map<String, Double> rarest = matches.get(0);
+        long rarestCount = Long.MAX_VALUE;
+        for (Map<String, Double> matching : matches) {
+            long count = 0;
+            for (String word : matching.keySet()) {
+                count += postings.get(word).size();
+            }
+            if (count < rarestCount) {
+                rarest = matching;
+                rarestCount = count;
+            }
+        }
+        Map<Task, Double> candidates = new HashMap<>();
+        for (Map.Entry<String, Double> word : rarest.entrySet()) {
+            for (Task task : postings.get(word.getKey())) {
+                candidates.merge(task, word.getValue(), Math::max);
+            }
+        }
+
+        PriorityQueue<Scored> best = new PriorityQueue<>(Scored.WORST_FIRST);
+        int total = 0;
+        for (Map.Entry<Task, Double> candidate : candidates.entrySet()) {
+            Task task = candidate.getKey();
+            double score = candidate.getValue();
+            for (Map<String, Double> matching : matches) {
+                if (matching == rarest) {
+                    continue;
+                }
+                double wordScore = scoreOf(task, matching);
+                if (wordScore == 0) {
+                    score = 0;
+                    break;
+                }
+                score += wordScore;
+            }
+            if (score == 0) {
+                continue;
+            }
+            total++;
+            if (best.size() < limit) {
+                best.add(new Scored(task, score));
+            } else if (!best.isEmpty() && isBetter(score, task, best.peek())) {
+                best.poll();
+                best.add(new Scored(task, score));
+            }
+        }
+        List<Scored> ranked = new ArrayList<>(best);
+        ranked.sort(Scored.WORST_FIRST.reversed());
+        List<Task> tasks = new ArrayList<>(ranked.size());
+        for (Scored scored : ranked) {
+            tasks.add(scored.task);
+        }
+        return new Result(tasks, total);
+    }
+
+    /**
+     * Scores a task against a word of the query by its closest word to it. A word matching few words of the index is
+     * looked up in their postings, and one matching many, such as a short prefix, against the task's own words.
+     * @return the weight of its closest word, or 0 if none of its words matches.
+     */
+    private double scoreOf(Task task, Map<String, Double> matching) {
+        double score = 0;
+        if (matching.size() <= MAX_POSTINGS_CHECKED) {
+            for (Map.Entry<String, Double> word : matching.entrySet()) {
+                if (word.getValue() > score && postings.get(word.getKey()).contains(task)) {
+                    score = word.getValue();
+                }
+            }
+            return score;
+        }
+        for (String token : tokens(task)) {
+            score = Math.max(score, matching.getOrDefault(token, 0.0));
+        }
+        return score;
+    }
+
+    /**
+     * Tells whether a task scoring this much would rank above the given match, so it is only kept if so.
+     */
+    private static boolean isBetter(double score, Task task, Scored match) {
+        return score > match.score || score == match.score && task.getId() < match.task.getId();
+    }
+
+    /**
+     * Finds the words in the index a query word matches, and how well each does.
+     * @param word the query word, folded to lower case.
+     * @return the matching words and their weights.
+     */
+    private Map<String, Double> matchingWords(String word) {
+        Map<String, Double> matching = new HashMap<>();
+        if (word.length() >= MIN_PREFIX_LENGTH) {
+            for (String prefixed : words.subSet(word, false, word + Character.MAX_VALUE, false)) {
+                matching.put(prefixed, PREFIX_WEIGHT);
+            }
+        }
+        int maxTypos = word.length() >= TWO_TYPOS_LENGTH ? 2 : word.length() >= ONE_TYPO_LENGTH ? 1 : 0;
+        if (maxTypos > 0 && isSpellable(word)) {
+            List<String> bigrams = bigrams(word);
+            // each typo changes at most three bigrams, as swapping two letters does, so a word within the typos
+            // allowed shares at least this many
+            int minShared = Math.max(1, bigrams.size() - 3 * maxTypos);
+            Map<String, Integer> shared = new HashMap<>();
+            for (String bigram : bigrams) {
+                for (String other : wordsByBigram.getOrDefault(bigram, Set.of())) {
+                    shared.merge(other, 1, Integer::sum);
+                }
+            }
+            for (Map.Entry<String, Integer> other : shared.entrySet()) {
+                String candidate = other.getKey();
+                if (other.getValue() < minShared || Math.abs(candidate.length() - word.length()) > maxTypos) {
+                    continue;
+                }
+                int typos = editDistance(word, candidate, maxTypos);
+                if (typos <= maxTypos) {
+                    matching.merge(candidate, TYPO_WEIGHTS[typos], Math::max);
+                }
+            }
+        }
+        if (postings.containsKey(word)) {
+            matching.put(word, EXACT_WEIGHT);
+        }
+        return matching;
+    }
+
+    /**
+     * Works out the number of letters to insert, delete, replace or swap with the next one to turn one word into
+     * another, giving up once it is sure to be more than the limit.
+     * @return the edit distance, or limit + 1 if it is more than the limit.
+     */
+    static int editDistance(String a, String b, int limit) {
+        int[] beforePrevious = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int distance = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    distance = Math.min(distance, beforePrevious[j - 2] + 1);
+                }
+                current[j] = distance;
+                rowMin = Math.min(rowMin, distance);
+            }
+            if (rowMin > limit) {
+                return limit + 1;
+            }
+            int[] recycled = beforePrevious;
+            beforePrevious = previous;
+            previous = current;
+            current = recycled;
+        }
+        return Math.min(previous[b.length()], limit + 1);
+    }
+
+    /**
+     * Obtains the bigrams of a word, including its first and last letters next to the start and end of the word.
+     */
+    private static List<String> bigrams(String word) {
+        String marked = WORD_START + word + WORD_END;
+        List<String> bigrams = new ArrayList<>(marked.length() - 1);
+        for (int i = 0; i + 2 <= marked.length(); i++) {
+            bigrams.add(marked.substring(i, i + 2));
+        }
+        return bigrams;
+    }
+
+    /**
+     * Tells whether a word can be misspelt, rather than being a number, a date or a code.
+     */
+    private static boolean isSpellable(String word) {
+        for (int i = 0; i < word.length(); i++) {
+            if (Character.isDigit(word.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Obtains the words a task can be found by: those of its description, and its tag both with and without #.
+     */
+    private static Set<String> tokens(Task task) {
+        Set<String> tokens = new HashSet<>();
+        tokens.addAll(split(task.getDescription()));
+        for (String word : split(task.getTag())) {
+            tokens.add(word);
+            tokens.add("#" + word);
+        }
+        return tokens;
+    }
+
+    /**
+     * Splits text into its words at whitespace, folded to lower case so searching ignores case.
+     */
+    private static List<String> split(String text) {
+        List<String> words = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean isSpace = i == text.length() || Character.isWhitespace(text.charAt(i));
+            if (isSpace && start >= 0) {
+                words.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            } else if (!isSpace && start < 0) {
+                start = i;
+            }
+        }
+        return words;
+    }
+}
@@ -0,0 +1,332 @@
+package service;
+
+import exceptions.DukeException;
+import model.Task;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * The snapshot file in the text format: one stored line per task between a header and a footer.
+ * The header gives the generation of the snapshot, which the journal refers to, and the footer the number of lines
+ * and a CRC32 of everything before it, so a snapshot cut short or garbled by a crash is told apart from a good one.
+ * Files written before snapshots had a header are read as plain task lines, and files in the binary format are
+ * handed to {@link BinarySnapshotFile}.
+ */
+class SnapshotFile {
+
+    static final String HEADER = "#snoopy";
+    static final String FOOTER = "#end";
+    static final int FORMAT_VERSION = 1;
+    // Longest footer read back from the end of the file, far more than the footer ever takes.
+    private static final int FOOTER_WINDOW = 256;
+
+    private final List<Task> tasks = new ArrayList<>();
+    private final List<LoadReport.BadLine> badLines = new ArrayList<>();
+    private long generation;
+    private boolean hasHeader;
+    private boolean isIntact;
+
+    private SnapshotFile() {
+    }
+
+    /**
+     * Creates a snapshot read from the binary format.
+     * @param tasks the tasks read, in order.
+     * @param generation the generation of the snapshot.
+     * @param isIntact whether the whole snapshot was read and its checksum matched.
+     */
+    SnapshotFile(List<Task> tasks, long generation, boolean isIntact) {
+        this.tasks.addAll(tasks);
+        this.generation = generation;
+        this.hasHeader = true;
+        this.isIntact = isIntact;
+    }
+
+    /**
+     * Obtains an empty snapshot, for when there is no file yet.
+     * @return a snapshot of generation 0 with no tasks.
+     */
+    static SnapshotFile empty() {
+        SnapshotFile snapshot = new SnapshotFile();
+        snapshot.isIntact = true;
+        return snapshot;
+    }
+
+    /**
+     * Encodes every task as a snapshot in the text format.
+     * @param snapshot the tasks, in order.
+     * @param generation the generation of the snapshot.
+     * @return the bytes of the snapshot: the header and lines, then the footer.
+     */
+    static ByteBuffer[] encode(TaskList.Snapshot snapshot, long generation) {
+        StringBuilder contents = new StringBuilder(64 + snapshot.size() * 48);
+        contents.append(HEADER).append(Storage.FIELD_SEPARATOR).append(FORMAT_VERSION)
+                .append(Storage.FIELD_SEPARATOR).append(generation).append('\n');
+        snapshot.forEach(task -> contents.append(task.fileSavingString()).append('\n'));
+        ByteBuffer body = StandardCharsets.UTF_8.encode(CharBuffer.wrap(contents));
+        CRC32 checksum = new CRC32();
+        checksum.update(body.duplicate());
+        String footer = FOOTER + Storage.FIELD_SEPARATOR + snapshot.size() + Storage.FIELD_SEPARATOR
+                + Long.toHexString(checksum.getValue()) + "\n";
+        return new ByteBuffer[] {body, StandardCharsets.US_ASCII.encode(footer)};
+    }
+
+    /**
+     * Reads a snapshot in either format.
+     * A text snapshot is read in a single pass: the file is memory-mapped, split into lines, and each line is added
+     * to the checksum and turned into a task straight away. Lines that cannot be decoded are kept aside instead of
+     * failing the whole load.
+     * @param path the snapshot file.
+     * @return the snapshot read, which tells whether it was intact.
+     * @throws IOException if the file cannot be read.
+     */
+    static SnapshotFile read(Path path) throws IOException {
+        SnapshotFile snapshot = new SnapshotFile();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (BinarySnapshotFile.isBinary(channel)) {
+                return BinarySnapshotFile.read(channel, size);
+            }
+            long[] footer = readFooter(channel, size);
+            long end = footer == null ? size : footer[0];
+            CRC32 checksum = new CRC32();
+            long regionStart = 0;
+            long lineNumber = 0;
+            while (regionStart < end) {
+                int regionSize = (int) Math.min(Storage.MAP_WINDOW, end - regionStart);
+                boolean isLastRegion = regionStart + regionSize == end;
+                MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, regionStart, regionSize);
+                int lineStart = 0;
+                for (int i = 0; i < regionSize; i++) {
+                    if (region.get(i) == '\n') {
+                        snapshot.readLine(region, lineStart, i, ++lineNumber, checksum);
+                        lineStart = i + 1;
+                    }
+                }
+                if (isLastRegion) {
+                    if (lineStart < regionSize) {
+                        snapshot.readLine(region, lineStart, regionSize, ++lineNumber, checksum);
+                    }
+                    break;
+                }
+                if (lineStart == 0) {
+                    throw new DukeException("Line " + (lineNumber + 1) + " is too long");
+                }
+                //continue from the start of the line cut off by the end of this region
+                regionStart += lineStart;
+            }
+
+            snapshot.checkFooter(footer, checksum);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Reads a snapshot in the text format that is already in memory, e.g. decompressed from an archived segment.
+     * @param contents the whole snapshot file.
+     * @return the snapshot read, which tells whether it was intact.
+     */
+    static SnapshotFile read(ByteBuffer contents) {
+        SnapshotFile snapshot = new SnapshotFile();
+        // read through a copy, since reading moves its position and limit
+        contents = contents.duplicate();
+        int size = contents.limit();
+        long[] footer = footerOf(contents.duplicate().position(Math.max(0, size - FOOTER_WINDOW)), size);
+        int end = footer == null ? size : (int) footer[0];
+        CRC32 checksum = new CRC32();
+        int lineStart = 0;
+        long lineNumber = 0;
+        for (int i = 0; i < end; i++) {
+            if (contents.get(i) == '\n') {
+                snapshot.readLine(contents, lineStart, i, ++lineNumber, checksum);
+                lineStart = i + 1;
+            }
+        }
+        if (lineStart < end) {
+            snapshot.readLine(contents, lineStart, end, ++lineNumber, checksum);
+        }
+        snapshot.checkFooter(footer, checksum);
+        return snapshot;
+    }
+
+    private void checkFooter(long[] footer, CRC32 checksum) {
+        if (hasHeader) {
+            isIntact = footer != null && footer[1] == tasks.size() + badLines.size()
+                    && footer[2] == checksum.getValue();
+        } else {
+            isIntact = footer == null;
+        }
+    }
+
+    /**
+     * Finds where every task of a snapshot starts, without decoding any of them or checking the checksum.
+     * A text snapshot is only indexed if it has a header and a footer counting as many lines as there are, so
+     * anything a plain {@link #read(Path)} would have to quarantine or recover is left to it.
+     * @param path the snapshot file.
+     * @return the index of the snapshot, or null if it has to be read in full.
+     * @throws IOException if the file cannot be read.
+     */
+    static SnapshotIndex index(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                return null;
+            }
+            if (BinarySnapshotFile.isBinary(channel)) {
+                return BinarySnapshotFile.index(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+            }
+            long[] footer = readFooter(channel, size);
+            if (footer == null || footer[1] > Integer.MAX_VALUE) {
+                return null;
+            }
+            int end = (int) footer[0];
+            MappedByteBuffer file = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int[] offsets = new int[(int) footer[1] + 1];
+            int lines = -1;
+            for (int i = 0; i < end; i++) {
+                if (file.get(i) != '\n') {
+                    continue;
+                }
+                if (++lines == offsets.length) {
+                    return null;
+                }
+                offsets[lines] = i + 1;
+            }
+            if (lines != offsets.length - 1 || (end > 0 && file.get(end - 1) != '\n')) {
+                return null;
+            }
+            for (int i = 1; i < offsets.length; i++) {
+                // an empty line is skipped by a full read, so the footer's count would not match
+                if (offsets[i] - offsets[i - 1] <= 1) {
+                    return null;
+                }
+            }
+            byte[] header = new byte[offsets[0] - 1];
+            file.get(0, header);
+            String headerLine = new String(header, StandardCharsets.UTF_8);
+            if (!headerLine.startsWith(HEADER)) {
+                return null;
+            }
+            return new SnapshotIndex(file, offsets, null, generationOf(headerLine), end, footer[2]);
+        }
+    }
+
+    /**
+     * Finds the footer at the end of the file.
+     * @return where the footer starts, the number of lines and the checksum it gives, or null if there is none.
+     */
+    private static long[] readFooter(FileChannel channel, long size) throws IOException {
+        int length = (int) Math.min(FOOTER_WINDOW, size);
+        ByteBuffer tail = ByteBuffer.allocate(length);
+        while (tail.hasRemaining() && channel.read(tail, size - length + tail.position()) >= 0) {
+            // keep reading until the whole tail is in
+        }
+        return footerOf(tail.flip(), size);
+    }
+
+    /**
+     * Finds the footer in the last bytes of the file.
+     * @param tail the last bytes of the file, from its position to its limit.
+     * @param size size of the whole file.
+     * @return where the footer starts, the number of lines and the checksum it gives, or null if there is none.
+     */
+    private static long[] footerOf(ByteBuffer tail, long size) {
+        int length = tail.remaining();
+        byte[] bytes = new byte[length];
+        tail.get(tail.position(), bytes);
+        String text = new String(bytes, StandardCharsets.ISO_8859_1);
+        int end = text.endsWith("\n") ? text.length() - 1 : text.length();
+        int start = text.lastIndexOf('\n', end - 1) + 1;
+        if (start == 0 && length < size) {
+            return null;
+        }
+        String[] fields = Storage.splitFields(text.substring(start, end));
+        if (fields.length != 3 || !fields[0].equals(FOOTER)) {
+            return null;
+        }
+        try {
+            return new long[] {size - length + start, Long.parseLong(fields[1]), Long.parseUnsignedLong(fields[2], 16)};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void readLine(ByteBuffer region, int start, int end, long lineNumber, CRC32 checksum) {
+        region.limit(Math.min(end + 1, region.capacity())).position(start);
+        checksum.update(region);
+        region.clear();
+
+        if (end > start && region.get(end - 1) == '\r') {
+            end--;
+        }
+        byte[] bytes = new byte[end - start];
+        region.get(start, bytes);
+        String line = new String(bytes, StandardCharsets.UTF_8);
+        if (line.isEmpty()) {
+            return;
+        }
+        if (lineNumber == 1 && line.startsWith(HEADER)) {
+            readHeader(line);
+            return;
+        }
+        try {
+            tasks.add(TaskDecoder.decode(Storage.splitFields(line)));
+        } catch (Exception e) {
+            String reason = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage().split("\n", 2)[0];
+            badLines.add(new LoadReport.BadLine(lineNumber, line, reason));
+        }
+    }
+
+    private void readHeader(String line) {
+        hasHeader = true;
+        generation = generationOf(line);
+    }
+
+    private static long generationOf(String header) {
+        String[] fields = Storage.splitFields(header);
+        try {
+            return fields.length == 3 ? Long.parseLong(fields[2]) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Returns the tasks read, in order.
+     * @return the tasks of the snapshot.
+     */
+    List<Task> getTasks() {
+        return tasks;
+    }
+
+    /**
+     * Returns the lines that could not be turned into tasks.
+     * @return the bad lines, in file order.
+     */
+    List<LoadReport.BadLine> getBadLines() {
+        return badLines;
+    }
+
+    long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Tells whether the snapshot was written completely: its footer is there and matches what was read before it.
+     * Files from before snapshots had a header count as intact.
+     * @return whether the snapshot can be trusted.
+     */
+    boolean isIntact() {
+        return isIntact;
+    }
+}
@@ -0,0 +1,84 @@
+package service;
+
+import model.Task;
+
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * Where each task starts in a memory-mapped snapshot file, found by a quick scan that decodes nothing, so the tasks
+ * can be counted straight away and each one is only turned into a {@link Task} when it is first needed.
+ * Built by {@link SnapshotFile#index(java.nio.file.Path)}.
+ */
+class SnapshotIndex {
+
+    private final MappedByteBuffer file;
+    // Start of each task, then where the last one ends.
+    private final int[] offsets;
+    // The tag table of a binary snapshot, or null for a text one.
+    private final String[] tags;
+    private final long generation;
+    // Where the checksummed part of the file ends, and the checksum the file gives for it.
+    private final int end;
+    private final long checksum;
+
+    /**
+     * Creates the index of a scanned snapshot.
+     * @param file the whole snapshot file, mapped.
+     * @param offsets start of each task, then where the last one ends.
+     * @param tags the tag table of a binary snapshot, or null for a text one.
+     * @param generation the generation of the snapshot.
+     * @param end where the checksummed part of the file ends.
+     * @param checksum the checksum the file gives.
+     */
+    SnapshotIndex(MappedByteBuffer file, int[] offsets, String[] tags, long generation, int end, long checksum) {
+        this.file = file;
+        this.offsets = offsets;
+        this.tags = tags;
+        this.generation = generation;
+        this.end = end;
+        this.checksum = checksum;
+    }
+
+    /**
+     * Returns number of tasks in the snapshot.
+     * @return number of tasks.
+     */
+    int size() {
+        return offsets.length - 1;
+    }
+
+    long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Turns one stored task into a task object. Safe to call from several threads.
+     * @param i the index number of the task.
+     * @return a new task object.
+     */
+    Task decode(int i) {
+        int start = offsets[i];
+        if (tags != null) {
+            return BinarySnapshotFile.readTask(file.duplicate().position(start), tags);
+        }
+        int lineEnd = offsets[i + 1] - 1;
+        if (lineEnd > start && file.get(lineEnd - 1) == '\r') {
+            lineEnd--;
+        }
+        byte[] bytes = new byte[lineEnd - start];
+        file.get(start, bytes);
+        return TaskDecoder.decode(Storage.splitFields(new String(bytes, StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Checks the whole file against its checksum, which the scan skipped so it could stay quick.
+     * @return whether the snapshot is intact.
+     */
+    boolean isIntact() {
+        CRC32 crc = new CRC32();
+        crc.update(file.duplicate().position(0).limit(end));
+        return crc.getValue() == checksum;
+    }
+}
@@ -1,82 +1,244 @@
 package service;
 
-import snoopy.Snoopy;
 import exceptions.DukeException;
+import metrics.Metrics;
+import model.Task;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.util.Scanner;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
 
 public class Storage {
 
     static final String FILE_PATH = "./data/snoopy.txt";
+    // Minimum number of journal records before the journal is folded back into the snapshot.
+    static final int COMPACTION_THRESHOLD = 1000;
+
+    static final String ADD_RECORD = "A";
+    static final String MARK_RECORD = "M";
+    static final String UNMARK_RECORD = "U";
+    static final String DELETE_RECORD = "X";
+    // A task put back at an index number with the id it had, as undoing a delete does.
+    static final String INSERT_RECORD = "I";
+    // First line of the journal, giving the generation of the snapshot its records apply to.
+    static final String GENERATION_RECORD = "G";
+
+    static final String FIELD_SEPARATOR = " | ";
+    // Largest region of the data file that is memory-mapped at once.
+    static final int MAP_WINDOW = 64 * 1024 * 1024;
+    static final String BINARY_EXTENSION = ".bin";
+
+    private final String filePath;
+    // Where the snapshot is in the format not configured, read once to switch formats.
+    private final String otherFormatPath;
+    private final String journalPath;
+    private final String quarantinePath;
+    private final String backupPath;
+    private final String corruptPath;
+    private final StorageFlusher flusher;
+    private final Archive archive;
+    private final long archiveAfterDays;
+    private int journalEntries;
+    // While batching, mutations are only persisted by checkpoints rather than journaled one by one.
+    private boolean isBatching;
+    private boolean hasBatchedChanges;
+
     public Storage() {
+        this(FILE_PATH);
+    }
 
+    /**
+     * Creates a storage backed by the given snapshot file, journaling next to it.
+     * @param filePath path of the snapshot file.
+     */
+    public Storage(String filePath) {
+        this(filePath, StorageConfig.fromSystemProperties());
     }
 
-    private static boolean isCorrupt(File file) throws FileNotFoundException {
-        try {
-            Scanner scanner = new Scanner(file);
-            while (scanner.hasNextLine()) {
-                String task[] = scanner.nextLine().split(" \\| ");
-                String type = task[0];
-                String done = task[1];
-                String desc = task[2];
-                String time1 = null;
-                String time2 = null;
-                switch (type) {
-                case "T":
-                    break;
-                case "D":
-                    time1 = task[3];
-                    break;
-                case "E":
-                    time1 = task[3];
-                    time2 = task[4];
-                    break;
-                }
+    /**
+     * Creates a storage backed by the given snapshot file, journaling next to it.
+     * In the binary format the snapshot is kept next to the given file, with the .bin extension instead of .txt.
+     * Archived tasks are kept in a directory next to it, named after it with .archive instead of .txt.
+     * @param filePath path of the snapshot file.
+     * @param config when and how mutations are written to disk.
+     */
+    public Storage(String filePath, StorageConfig config) {
+        String basePath = filePath.replaceFirst("\\.txt$", "");
+        boolean isBinary = config.getFormat() == StorageConfig.Format.BINARY;
+        this.filePath = isBinary ? basePath + BINARY_EXTENSION : filePath;
+        this.otherFormatPath = isBinary ? filePath : basePath + BINARY_EXTENSION;
+        this.journalPath = basePath + ".journal";
+        this.quarantinePath = basePath + ".quarantine.txt";
+        this.backupPath = this.filePath + ".bak";
+        this.corruptPath = basePath + ".corrupt" + (isBinary ? BINARY_EXTENSION : ".txt");
+        this.flusher = new StorageFlusher(this.filePath, backupPath, journalPath, config);
+        this.archive = new Archive(Path.of(basePath + ".archive"), config.isArchiveCompressed(),
+                config.getFsync() != StorageConfig.Fsync.NEVER);
+        this.archiveAfterDays = config.getArchiveAfterDays();
+    }
+
+    /**
+     * Splits a stored line on " | " without going through a regex.
+     * @param line the stored line.
+     * @return the fields of the line.
+     */
+    static String[] splitFields(String line) {
+        int count = 1;
+        for (int i = line.indexOf(FIELD_SEPARATOR); i >= 0; i = line.indexOf(FIELD_SEPARATOR, i + FIELD_SEPARATOR.length())) {
+            count++;
+        }
+        String[] fields = new String[count];
+        int start = 0;
+        for (int f = 0; f < count - 1; f++) {
+            int end = line.indexOf(FIELD_SEPARATOR, start);
+            fields[f] = line.substring(start, end);
+            start = end + FIELD_SEPARATOR.length();
+        }
+        fields[count - 1] = line.substring(start);
+        return fields;
+    }
+
+    /**
+     * Appends the lines that could not be loaded to the quarantine file, so they can be fixed by hand.
+     * @param report report holding the quarantined lines.
+     * @throws IOException if the quarantine file cannot be written.
+     */
+    private void quarantine(LoadReport report) throws IOException {
+        report.setQuarantinePath(quarantinePath);
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(quarantinePath, true))) {
+            for (LoadReport.BadLine badLine : report.getBadLines()) {
+                writer.write("# line " + badLine.getLineNumber() + ": " + badLine.getReason());
+                writer.newLine();
+                writer.write(badLine.getLine());
+                writer.newLine();
             }
-            scanner.close();
-            return false;
-        } catch (Exception e) {
+        }
+    }
+
+    /**
+     * Notes the lines of the snapshot that could not be turned into tasks and moves them to the quarantine file.
+     * @param snapshot the snapshot read.
+     * @param report report the bad lines are added to.
+     * @throws IOException if the quarantine file cannot be written.
+     */
+    private void quarantineBadLines(SnapshotFile snapshot, LoadReport report) throws IOException {
+        for (LoadReport.BadLine badLine : snapshot.getBadLines()) {
+            report.addBadLine(badLine.getLineNumber(), badLine.getLine(), badLine.getReason());
+        }
+        if (!report.getBadLines().isEmpty()) {
+            quarantine(report);
+        }
+    }
+
+    /**
+     * Tells whether the journal holds no records to replay onto the snapshot of the given generation.
+     * @param journal the journal file.
+     * @param generation generation of the snapshot.
+     * @return whether the snapshot alone holds every task.
+     * @throws IOException if the journal cannot be read.
+     */
+    private static boolean hasNothingToReplay(File journal, long generation) throws IOException {
+        if (!journal.exists()) {
             return true;
         }
+        try (BufferedReader reader = Files.newBufferedReader(journal.toPath(), StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            return line == null
+                    || line.equals(GENERATION_RECORD + FIELD_SEPARATOR + generation) && reader.readLine() == null;
+        }
     }
 
-    private static void parseTodoFile(File file, TaskList taskList) throws Exception {
-        Scanner scanner = new Scanner(file);
-        Integer taskCounter = 1;
-        while (scanner.hasNextLine()) {
-            String task[] = scanner.nextLine().split(" \\| ");
-            String type = task[0];
-            String done = task[1];
-            String desc = task[2];
-            String time1 = null;
-            String time2 = null;
-            switch (type) {
-            case "D":
-                time1 = task[3];
-                Snoopy.processCommand("Deadline " + desc + " /by " + time1, taskList, false);
-                break;
-            case "E":
-                time1 = task[3];
-                time2 = task[4];
-                Snoopy.processCommand("Event " + desc + " /from " + time1 + " /to " + time2, taskList, false);
-                break;
-            case "T":
-                Snoopy.processCommand("Todo " + desc, taskList, false);
-                break;
+    /**
+     * Replays the mutations recorded in the journal on top of the loaded snapshot.
+     * The journal is only replayed onto the snapshot generation named in its first line, so records that a crash
+     * left behind after they were folded into a newer snapshot are not applied twice. Journals from before
+     * snapshots had generations only apply to a snapshot without one.
+     * A record that cannot be parsed is skipped, and so is a last line without its line break, which a crash cut
+     * short even if what is left of it still parses.
+     * @param file the journal file.
+     * @param taskList tasklist object holding the loaded snapshot.
+     * @param generation generation of the loaded snapshot.
+     * @return number of records replayed, or -1 if the journal belongs to another snapshot.
+     */
+    private static int replayJournal(File file, TaskList taskList, long generation) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            int replayed = 0;
+            String line = reader.readLine();
+            if (line == null) {
+                return 0;
             }
-
-            if (done.equals("1")) { // done
-                Snoopy.processCommand("Mark " + taskCounter.toString(), taskList, false);
+            if (line.startsWith(GENERATION_RECORD + FIELD_SEPARATOR)) {
+                if (!line.equals(GENERATION_RECORD + FIELD_SEPARATOR + generation)) {
+                    return -1;
+                }
+                line = reader.readLine();
+            } else if (generation != 0) {
+                return -1;
             }
-            //parse each line
-            taskCounter++;
+            boolean isLastLineTorn = !endsWithLineBreak(file.toPath());
+            for (String next; line != null; line = next) {
+                next = reader.readLine();
+                if (next == null && isLastLineTorn) {
+                    break;
+                }
+                int separator = line.indexOf(FIELD_SEPARATOR);
+                if (separator < 0) {
+                    continue;
+                }
+                String argument = line.substring(separator + FIELD_SEPARATOR.length());
+                try {
+                    switch (line.substring(0, separator)) {
+                    case ADD_RECORD:
+                        taskList.add(TaskDecoder.decode(splitFields(argument)));
+                        break;
+                    case MARK_RECORD:
+                        taskList.markAsDone(Integer.parseInt(argument));
+                        break;
+                    case UNMARK_RECORD:
+                        taskList.markAsUndone(Integer.parseInt(argument));
+                        break;
+                    case DELETE_RECORD:
+                        taskList.remove(Integer.parseInt(argument));
+                        break;
+                    case INSERT_RECORD:
+                        int position = argument.indexOf(FIELD_SEPARATOR);
+                        taskList.insert(Integer.parseInt(argument.substring(0, position)), TaskDecoder.decode(
+                                splitFields(argument.substring(position + FIELD_SEPARATOR.length()))));
+                        break;
+                    default:
+                        continue;
+                    }
+                    replayed++;
+                } catch (Exception e) {
+                    // Skip records that were only partially written
+                }
+            }
+            return replayed;
         }
-        scanner.close();
+    }
 
+    private static boolean endsWithLineBreak(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer last = ByteBuffer.allocate(1);
+            return channel.size() == 0 || channel.read(last, channel.size() - 1) == 1 && last.get(0) == '\n';
+        }
     }
 
     private static boolean createFile(File file) throws Exception {
@@ -90,60 +252,571 @@ public class Storage {
         }
     }
 
-    private void openStoredFile(TaskList taskList) throws Exception {
+    private LoadReport openStoredFile(TaskList taskList) throws Exception {
 
         //See if file already exists then parse it
-        File file = new File(FILE_PATH);
+        File file = new File(filePath);
+        File otherFormatFile = new File(otherFormatPath);
+        LoadReport report = new LoadReport();
 
         try {
-            if (!file.exists()) { //Create if don't exist
-                createFile(file);
-            } else if (isCorrupt(file)) { //file does exist
-                //file corrupt
-                createFile(file);
-            } else {
-                //parse current info and return.
-                parseTodoFile(file, taskList);
+            archive.open();
+            taskList.reserveIds(archive.getLastId());
+            //the format was switched, read the snapshot in the old one and write it in the new one
+            boolean isSwitchingFormat = !file.exists() && !new File(backupPath).exists() && otherFormatFile.exists();
+            SnapshotFile snapshot = isSwitchingFormat
+                    ? readSnapshot(otherFormatFile, new File(otherFormatPath + ".bak"), report)
+                    : readSnapshot(file, new File(backupPath), report);
+            for (Task task : snapshot.getTasks()) {
+                taskList.add(task);
+                report.addLoaded();
+            }
+            quarantineBadLines(snapshot, report);
+            flusher.setGeneration(snapshot.getGeneration());
+
+            File journal = new File(journalPath);
+            int replayed = journal.exists() ? replayJournal(journal, taskList, snapshot.getGeneration()) : 0;
+            int unarchived = finishArchiving(taskList, snapshot.getGeneration());
+            // loading is not a change the user can undo
+            taskList.clearHistory();
+            if (replayed != 0 || unarchived != 0 || !report.isClean() || isSwitchingFormat) {
+                //fold the replayed journal into a fresh snapshot, dropping quarantined lines and stale records
+                compact(taskList);
+            }
+            if (isSwitchingFormat) {
+                flusher.flush();
+                Files.delete(otherFormatFile.toPath());
+                Files.deleteIfExists(new File(otherFormatPath + ".bak").toPath());
             }
         } catch (Exception e) {
             throw new DukeException("open file failed");
         }
+        return report;
+    }
+
+    /**
+     * Removes the tasks of segments archived after the loaded snapshot from the tasklist. They are only still there
+     * when a crash came between writing the segment and the snapshot without its tasks.
+     * @param taskList tasklist holding the loaded snapshot and journal.
+     * @param generation generation of the loaded snapshot.
+     * @return number of tasks removed.
+     * @throws IOException if a segment cannot be read.
+     */
+    private int finishArchiving(TaskList taskList, long generation) throws IOException {
+        Set<Integer> ids = new HashSet<>();
+        for (Archive.Segment segment : archive.archivedAfter(generation)) {
+            for (Task task : archive.tasksOf(segment)) {
+                ids.add(task.getId());
+            }
+        }
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return taskList.removeIf(task -> ids.contains(task.getId())).size();
+    }
+
+    /**
+     * Reads the snapshot, falling back to the one it replaced if it was cut short or garbled by a crash.
+     * A damaged snapshot is kept aside in the corrupt file so nothing is lost for good.
+     * @param file the snapshot file.
+     * @param backup the snapshot it replaced.
+     * @param report report noting any recovery.
+     * @return the snapshot to load.
+     * @throws Exception if the files cannot be read.
+     */
+    private SnapshotFile readSnapshot(File file, File backup, LoadReport report) throws Exception {
+        SnapshotFile snapshot = file.exists() ? SnapshotFile.read(file.toPath()) : null;
+        if (snapshot != null && snapshot.isIntact()) {
+            return snapshot;
+        }
+        SnapshotFile previous = backup.exists() ? SnapshotFile.read(backup.toPath()) : null;
+        if (previous != null && previous.isIntact()) {
+            if (snapshot == null) {
+                report.setRecovery("Restored the previous snapshot, the last save was interrupted.");
+            } else {
+                Files.move(file.toPath(), new File(corruptPath).toPath(), StandardCopyOption.REPLACE_EXISTING);
+                report.setRecovery("The saved tasks were damaged, restored the previous snapshot. The damaged file"
+                        + " was kept as " + corruptPath + ".");
+            }
+            return previous;
+        }
+        if (snapshot == null) {
+            //first run, nothing to load yet
+            createFile(file);
+            return SnapshotFile.empty();
+        }
+        report.setRecovery("The saved tasks were cut short and no previous snapshot was found, loaded what was left.");
+        return snapshot;
+    }
+
+    /**
+     * Converts a snapshot between the text and binary formats, keeping every task, its id and the dates as typed.
+     * The format written is picked by the extension of the target: .bin for binary, anything else for text.
+     * @param from the snapshot to read, in either format.
+     * @param to the file to write.
+     * @return report of the tasks converted and any lines that could not be.
+     * @throws IOException if a file cannot be read or written.
+     */
+    public static LoadReport convert(String from, String to) throws IOException {
+        SnapshotFile snapshot = SnapshotFile.read(Path.of(from));
+        LoadReport report = new LoadReport();
+        TaskList taskList = new TaskList();
+        for (Task task : snapshot.getTasks()) {
+            taskList.add(task);
+            report.addLoaded();
+        }
+        for (LoadReport.BadLine badLine : snapshot.getBadLines()) {
+            report.addBadLine(badLine.getLineNumber(), badLine.getLine(), badLine.getReason());
+        }
+        if (!snapshot.isIntact()) {
+            report.setRecovery(from + " was cut short or damaged, converted what could be read.");
+        }
+        ByteBuffer[] contents = to.endsWith(BINARY_EXTENSION)
+                ? BinarySnapshotFile.encode(taskList.snapshot(), snapshot.getGeneration())
+                : SnapshotFile.encode(taskList.snapshot(), snapshot.getGeneration());
+        try (FileChannel channel = FileChannel.open(Path.of(to), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (contents[contents.length - 1].hasRemaining()) {
+                channel.write(contents);
+            }
+        }
+        return report;
     }
 
     /**
      * Preload the current already-stored list of tasks from data.txt.
+     * Corrupt lines are moved to the quarantine file rather than discarding the whole file.
      * @param taskList tasklist object where the tasks would be added to.
+     * @return report of the tasks loaded and the lines quarantined.
+     * @throws Exception
+     */
+    public LoadReport loadInfo(TaskList taskList) throws Exception {
+        long start = System.nanoTime();
+        LoadReport report = openStoredFile(taskList);
+        Metrics.recordLoad(System.nanoTime() - start, report.getLoaded());
+        return report;
+    }
+
+    /**
+     * Opens the stored tasks without decoding them, so they can be counted and listed as soon as the snapshot has
+     * been scanned for where each task starts, however many tasks there are. The rest are decoded, checked against
+     * the snapshot's checksum and indexed on a background thread, and queries through the indexes and changes wait
+     * for it.
+     * Falls back to {@link #loadInfo(TaskList)} when the snapshot has to be read in full anyway: when there is none
+     * yet, it is cut short, it has no header, the format is being switched, the journal has records to replay or an
+     * archiving was interrupted.
+     * @param taskList empty tasklist the tasks are opened in.
+     * @return report of the tasks loaded.
      * @throws Exception
      */
-    public void loadInfo(TaskList taskList) throws Exception {
-        openStoredFile(taskList);
+    public LoadReport loadInfoLazily(TaskList taskList) throws Exception {
+        long start = System.nanoTime();
+        File file = new File(filePath);
+        SnapshotIndex index;
+        try {
+            index = file.exists() ? SnapshotFile.index(file.toPath()) : null;
+            if (index != null) {
+                archive.open();
+            }
+            if (index != null && (!hasNothingToReplay(new File(journalPath), index.getGeneration())
+                    || !archive.archivedAfter(index.getGeneration()).isEmpty())) {
+                index = null;
+            }
+        } catch (IOException e) {
+            index = null;
+        }
+        if (index == null) {
+            return loadInfo(taskList);
+        }
+
+        taskList.reserveIds(archive.getLastId());
+        taskList.openLazily(index);
+        flusher.setGeneration(index.getGeneration());
+        LoadReport report = new LoadReport();
+        report.addLoaded(index.size());
+        SnapshotIndex stored = index;
+        Thread loader = new Thread(() -> finishLoading(taskList, stored), "snoopy-task-loader");
+        loader.setDaemon(true);
+        loader.start();
+        Metrics.recordLoad(System.nanoTime() - start, report.getLoaded());
+        return report;
     }
 
     /**
-     * Update the database (snoopy.txt) on the most recent version of the tasklist.
+     * Decodes and indexes the rest of a snapshot opened lazily. If it turns out to be damaged after all, the
+     * tasks are recovered as {@link #loadInfo(TaskList)} would have, before any change is let through.
+     * @param taskList the tasklist the snapshot was opened in.
+     * @param index the index of the snapshot.
+     */
+    private void finishLoading(TaskList taskList, SnapshotIndex index) {
+        boolean isFinished = false;
+        try {
+            if (index.isIntact()) {
+                try {
+                    taskList.finishLoading();
+                    return;
+                } catch (RuntimeException e) {
+                    // A line that cannot be decoded or ids out of order, read it in full so the line is
+                    // quarantined or the ids given afresh to tasks nobody has read yet
+                }
+            }
+            LoadReport report = new LoadReport();
+            SnapshotFile snapshot = readSnapshot(new File(filePath), new File(backupPath), report);
+            taskList.finishLoading(snapshot.getTasks());
+            isFinished = true;
+            report.addLoaded(snapshot.getTasks().size());
+            quarantineBadLines(snapshot, report);
+            flusher.setGeneration(snapshot.getGeneration());
+            compact(taskList);
+            System.err.println(report);
+        } catch (Exception e) {
+            System.err.println("Unable to load tasks: " + e.getMessage());
+            if (!isFinished) {
+                taskList.finishLoading(List.of());
+            }
+        }
+    }
+
+    /**
+     * Moves the tasks matching the filter out of the tasklist into new archived segments, which are written before
+     * the tasks are removed and a fresh snapshot without them is saved.
+     * @param taskList most updated version of the tasklist.
+     * @param filter which tasks to archive.
+     * @return the tasks archived, in list order.
+     * @throws RuntimeException if the archive cannot be written, in which case the tasklist is left as it was.
+     */
+    public List<Task> archive(TaskList taskList, Predicate<Task> filter) throws RuntimeException {
+        //pin the generation, so the segments name the snapshot that is written next
+        flusher.flush();
+        List<Task> tasks = new ArrayList<>();
+        taskList.snapshot().forEach(task -> {
+            if (filter.test(task)) {
+                tasks.add(task);
+            }
+        });
+        if (tasks.isEmpty()) {
+            return tasks;
+        }
+        try {
+            archive.add(tasks, flusher.getGeneration() + 1);
+        } catch (IOException e) {
+            throw new DukeException("Unable to write the archive: " + e.getMessage());
+        }
+        Set<Task> archived = Collections.newSetFromMap(new IdentityHashMap<>());
+        archived.addAll(tasks);
+        taskList.removeIf(archived::contains);
+        // undoing would bring back tasks that are in the archive too
+        taskList.clearHistory();
+        updateRecords(taskList);
+        return tasks;
+    }
+
+    /**
+     * Archives the tasks that are finished with: done, or events that are over.
+     * @param taskList most updated version of the tasklist.
+     * @param dueBefore only archive deadlines and events due before this moment, or null to archive every finished
+     *     task, todos included.
+     * @return the tasks archived, in list order.
+     * @throws RuntimeException if the archive cannot be written.
+     */
+    public List<Task> archiveFinished(TaskList taskList, LocalDateTime dueBefore) throws RuntimeException {
+        LocalDateTime now = LocalDateTime.now();
+        return archive(taskList, task -> Archive.isFinished(task, now) && (dueBefore == null
+                || task.getDueDateTime() != null && task.getDueDateTime().isBefore(dueBefore)));
+    }
+
+    /**
+     * Archives the deadlines and events that are finished with and whose date is more than the configured number of
+     * days ago, e.g. when closing. Does nothing if archiving on closing is turned off.
+     * @param taskList most updated version of the tasklist.
+     * @return number of tasks archived.
+     * @throws RuntimeException if the archive cannot be written.
+     */
+    public int autoArchive(TaskList taskList) throws RuntimeException {
+        if (archiveAfterDays <= 0) {
+            return 0;
+        }
+        return archiveFinished(taskList, LocalDateTime.now().minusDays(archiveAfterDays)).size();
+    }
+
+    /**
+     * Obtains every archived task, reading every archived segment not read yet.
+     * @return the archived tasks, by month and then in id order.
+     * @throws RuntimeException if a segment cannot be read.
+     */
+    public List<Task> getArchived() throws RuntimeException {
+        try {
+            return archive.all();
+        } catch (IOException e) {
+            throw new DukeException("Unable to read the archive: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns number of archived tasks, without reading any archived segment.
+     * @return number of archived tasks.
+     */
+    public int getArchivedCount() {
+        return archive.size();
+    }
+
+    /**
+     * Obtains the archived deadlines and events due strictly before the given moment, reading only the segments of
+     * the months up to it.
+     * @param end the moment to stop at.
+     * @return the archived tasks due before it, earliest first.
+     * @throws RuntimeException if a segment cannot be read.
+     */
+    public List<Task> findArchivedDueBefore(LocalDateTime end) throws RuntimeException {
+        try {
+            return archive.dueBetween(null, end, false);
+        } catch (IOException e) {
+            throw new DukeException("Unable to read the archive: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Obtains the archived deadlines and events due between the two moments, both included, reading only the
+     * segments of the months in between.
+     * @param start the earliest moment.
+     * @param end the latest moment.
+     * @return the archived tasks due in between, earliest first.
+     * @throws RuntimeException if a segment cannot be read.
+     */
+    public List<Task> findArchivedDueBetween(LocalDateTime start, LocalDateTime end) throws RuntimeException {
+        try {
+            return archive.dueBetween(start, end, true);
+        } catch (IOException e) {
+            throw new DukeException("Unable to read the archive: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Update the database (snoopy.txt) on the most recent version of the tasklist, waiting until it is written.
      * @param taskList most updated version of the tasklist.
      * @throws RuntimeException
      */
     public void updateRecords(TaskList taskList) throws RuntimeException {
-        assert(FILE_PATH != null);
+        assert(filePath != null);
         assert(taskList != null);
 
-        try {
-            File file = new File(FILE_PATH);
+        compact(taskList);
+        flusher.flush();
+    }
 
-            if (taskList.size() == 0) {
-                return;
+    /**
+     * Records that a task was appended to the end of the tasklist.
+     * @param taskList the tasklist after the task was added.
+     * @throws RuntimeException
+     */
+    public void recordAdd(TaskList taskList) throws RuntimeException {
+        if (isBatching) {
+            hasBatchedChanges = true;
+            return;
+        }
+        appendRecord(ADD_RECORD + " | " + taskList.get(taskList.size() - 1).fileSavingString(), taskList);
+    }
+
+    /**
+     * Records that a task was marked as done.
+     * @param taskList the tasklist after the task was marked.
+     * @param index index of the marked task.
+     * @throws RuntimeException
+     */
+    public void recordMark(TaskList taskList, int index) throws RuntimeException {
+        appendRecord(MARK_RECORD + " | " + index, taskList);
+    }
+
+    /**
+     * Records that a task was marked as not done.
+     * @param taskList the tasklist after the task was unmarked.
+     * @param index index of the unmarked task.
+     * @throws RuntimeException
+     */
+    public void recordUnmark(TaskList taskList, int index) throws RuntimeException {
+        appendRecord(UNMARK_RECORD + " | " + index, taskList);
+    }
+
+    /**
+     * Records that a task was removed from the tasklist.
+     * @param taskList the tasklist after the task was removed.
+     * @param index index the task had before it was removed.
+     * @throws RuntimeException
+     */
+    public void recordDelete(TaskList taskList, int index) throws RuntimeException {
+        appendRecord(DELETE_RECORD + " | " + index, taskList);
+    }
+
+    /**
+     * Records that the tasks at the given index numbers were marked as done or not by one bulk command.
+     * @param taskList the tasklist after the tasks were marked.
+     * @param positions index numbers of the tasks.
+     * @param isDone whether they were marked as done.
+     * @throws RuntimeException
+     */
+    public void recordMarks(TaskList taskList, BitSet positions, boolean isDone) throws RuntimeException {
+        List<String> records = new ArrayList<>(positions.cardinality());
+        for (int i = positions.nextSetBit(0); i >= 0; i = positions.nextSetBit(i + 1)) {
+            records.add((isDone ? MARK_RECORD : UNMARK_RECORD) + " | " + i);
+        }
+        appendRecords(records, taskList);
+    }
+
+    /**
+     * Records that the tasks at the given index numbers were removed by one bulk command.
+     * @param taskList the tasklist after the tasks were removed.
+     * @param positions index numbers the tasks had before they were removed.
+     * @throws RuntimeException
+     */
+    public void recordDeletes(TaskList taskList, BitSet positions) throws RuntimeException {
+        List<String> records = new ArrayList<>(positions.cardinality());
+        // from the back, so each record still gives the index number the task has when it is replayed
+        for (int i = positions.length() - 1; i >= 0; i = positions.previousSetBit(i - 1)) {
+            records.add(DELETE_RECORD + " | " + i);
+        }
+        appendRecords(records, taskList);
+    }
+
+    /**
+     * Records that the tasklist went back or forward to another version by undo or redo, as the records that turn
+     * one version into the other: the tasks taken out are deleted, those put in are inserted with the ids they had
+     * and those only marked or unmarked are marked or unmarked again.
+     * @param taskList the tasklist after the undo or redo.
+     * @param change what the undo or redo did.
+     * @throws RuntimeException
+     */
+    public void recordRestore(TaskList taskList, TaskList.Change change) throws RuntimeException {
+        // both lists are in id order, so a task in both was only marked or unmarked
+        List<Task> removed = new ArrayList<>();
+        List<Task> added = new ArrayList<>();
+        List<Task> marked = new ArrayList<>();
+        List<Task> taken = change.getRemoved();
+        List<Task> put = change.getAdded();
+        for (int i = 0, j = 0; i < taken.size() || j < put.size(); ) {
+            if (j == put.size() || i < taken.size() && taken.get(i).getId() < put.get(j).getId()) {
+                removed.add(taken.get(i++));
+            } else if (i == taken.size() || put.get(j).getId() < taken.get(i).getId()) {
+                added.add(put.get(j++));
+            } else {
+                marked.add(put.get(j++));
+                i++;
             }
-            FileWriter writer = new FileWriter(FILE_PATH);
-            writer.write(taskList.get(0).fileSavingString());
-            for (int i = 1; i < taskList.size(); i++) {
-                writer.write("\n" + taskList.get(i).fileSavingString());
+        }
+
+        TaskList.Snapshot after = taskList.snapshot();
+        List<String> records = new ArrayList<>(removed.size() + added.size() + marked.size());
+        // the index number each task taken out had: those before it now, less those put in, plus those taken out
+        int[] positions = new int[removed.size()];
+        int addedBefore = 0;
+        for (int i = 0; i < removed.size(); i++) {
+            int id = removed.get(i).getId();
+            while (addedBefore < added.size() && added.get(addedBefore).getId() < id) {
+                addedBefore++;
             }
-            writer.close();
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+            positions[i] = after.positionOfId(id) - addedBefore + i;
+        }
+        // from the back, so each record still gives the index number the task has when it is replayed
+        for (int i = positions.length - 1; i >= 0; i--) {
+            records.add(DELETE_RECORD + " | " + positions[i]);
+        }
+        // from the front, so the tasks before each one are all in place by then
+        for (Task task : added) {
+            records.add(INSERT_RECORD + " | " + after.indexOfId(task.getId()) + " | " + task.fileSavingString());
         }
+        for (Task task : marked) {
+            records.add((task.isDone() ? MARK_RECORD : UNMARK_RECORD) + " | " + after.indexOfId(task.getId()));
+        }
+        appendRecords(records, taskList);
+    }
+
+    /**
+     * Appends one mutation to the journal (snoopy.journal), so a single command only costs one small write.
+     * Depending on the {@link StorageConfig}, the write happens before this returns or together with the rest of a
+     * burst on the background flusher.
+     * Once the journal outgrows the tasklist it is folded back into the snapshot, keeping the amortised cost O(1).
+     * @param record the journal line to append.
+     * @param taskList most updated version of the tasklist.
+     * @throws RuntimeException
+     */
+    private void appendRecord(String record, TaskList taskList) throws RuntimeException {
+        appendRecords(List.of(record), taskList);
+    }
+
+    /**
+     * Appends the mutations of one command to the journal in a single write, or folds them into a fresh snapshot
+     * straight away if there are more of them than tasks left.
+     * @param records the journal lines to append.
+     * @param taskList most updated version of the tasklist.
+     * @throws RuntimeException
+     */
+    private void appendRecords(List<String> records, TaskList taskList) throws RuntimeException {
+        if (isBatching) {
+            hasBatchedChanges = true;
+            return;
+        }
+        if (records.isEmpty()) {
+            return;
+        }
+        if (journalEntries + records.size() >= Math.max(COMPACTION_THRESHOLD, taskList.size())) {
+            compact(taskList);
+            return;
+        }
+        flusher.appendAll(records);
+        journalEntries += records.size();
+    }
+
+    /**
+     * Queues a fresh snapshot of the tasklist, which empties the journal once written.
+     * @param taskList most updated version of the tasklist.
+     * @throws RuntimeException
+     */
+    public void compact(TaskList taskList) throws RuntimeException {
+        flusher.replaceWith(taskList.snapshot());
+        journalEntries = 0;
     }
 
+    /**
+     * Writes every mutation recorded so far to disk, waiting until it is done.
+     * @throws RuntimeException
+     */
+    public void flush() throws RuntimeException {
+        flusher.flush();
+    }
 
+    /**
+     * Writes every mutation recorded so far and stops the background flusher.
+     */
+    public void close() {
+        flusher.close();
+    }
+
+    /**
+     * Stops journaling each mutation, e.g. while running a command script.
+     * Changes are then only written by {@link #checkpoint(TaskList)} and {@link #finishBatch(TaskList)}.
+     */
+    public void startBatch() {
+        isBatching = true;
+    }
+
+    /**
+     * Writes a snapshot of the tasklist if it changed since the last checkpoint of the batch.
+     * @param taskList most updated version of the tasklist.
+     * @throws RuntimeException
+     */
+    public void checkpoint(TaskList taskList) throws RuntimeException {
+        if (hasBatchedChanges) {
+            updateRecords(taskList);
+            hasBatchedChanges = false;
+        }
+    }
+
+    /**
+     * Writes what changed during the batch and goes back to journaling each mutation.
+     * @param taskList most updated version of the tasklist.
+     * @throws RuntimeException
+     */
+    public void finishBatch(TaskList taskList) throws RuntimeException {
+        checkpoint(taskList);
+        isBatching = false;
+    }
 }
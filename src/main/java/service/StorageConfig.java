@@ -0,0 +1,164 @@
+package service;
+
+/**
+ * How eagerly Storage pushes mutations to disk, and when finished tasks are moved to the archive.
+ * Read from system properties so it can be picked per run, e.g. {@code -Dsnoopy.storage.mode=sync}.
+ */
+public class StorageConfig {
+
+    /**
+     * When journal records reach the disk.
+     */
+    public enum Mode {
+        // Every command is written before it returns.
+        SYNC,
+        // Commands are buffered and written together by a background flusher.
+        GROUP_COMMIT
+    }
+
+    /**
+     * Which writes are forced to the storage device before they count as done.
+     */
+    public enum Fsync {
+        // Nothing is forced, the operating system writes it back when it likes.
+        NEVER,
+        // Snapshots are forced before they replace the previous one, so a crash cannot leave a torn snapshot.
+        SNAPSHOTS,
+        // Journal records are forced too, so no acknowledged command is lost in a power cut.
+        ALWAYS
+    }
+
+    /**
+     * How snapshots are written. Either is read back, whichever was written last.
+     */
+    public enum Format {
+        // One line per task, as in the journal, which can be read and edited by hand.
+        TEXT,
+        // Varints, a tag table and dates as minutes, smaller and faster to load.
+        BINARY
+    }
+
+    static final long DEFAULT_GROUP_COMMIT_MILLIS = 200;
+    static final int DEFAULT_GROUP_COMMIT_SIZE = 1000;
+    // Off unless asked for, since archiving on closing takes tasks out of the list without being told to.
+    static final long DEFAULT_ARCHIVE_AFTER_DAYS = 0;
+
+    private final Mode mode;
+    private final long groupCommitMillis;
+    private final int groupCommitSize;
+    private final Fsync fsync;
+    private final Format format;
+    private final long archiveAfterDays;
+    private final boolean isArchiveCompressed;
+
+    /**
+     * Creates a storage configuration.
+     * @param mode when journal records are written.
+     * @param groupCommitMillis longest a buffered record waits before it is written, in group commit mode.
+     * @param groupCommitSize number of buffered records that triggers a write straight away, in group commit mode.
+     * @param fsync which writes are forced to the storage device before they count as done.
+     */
+    public StorageConfig(Mode mode, long groupCommitMillis, int groupCommitSize, Fsync fsync) {
+        this(mode, groupCommitMillis, groupCommitSize, fsync, Format.TEXT);
+    }
+
+    /**
+     * Creates a storage configuration.
+     * @param mode when journal records are written.
+     * @param groupCommitMillis longest a buffered record waits before it is written, in group commit mode.
+     * @param groupCommitSize number of buffered records that triggers a write straight away, in group commit mode.
+     * @param fsync which writes are forced to the storage device before they count as done.
+     * @param format how snapshots are written.
+     */
+    public StorageConfig(Mode mode, long groupCommitMillis, int groupCommitSize, Fsync fsync, Format format) {
+        this(mode, groupCommitMillis, groupCommitSize, fsync, format, DEFAULT_ARCHIVE_AFTER_DAYS, true);
+    }
+
+    /**
+     * Creates a storage configuration.
+     * @param mode when journal records are written.
+     * @param groupCommitMillis longest a buffered record waits before it is written, in group commit mode.
+     * @param groupCommitSize number of buffered records that triggers a write straight away, in group commit mode.
+     * @param fsync which writes are forced to the storage device before they count as done.
+     * @param format how snapshots are written.
+     * @param archiveAfterDays days after their date that finished deadlines and events are archived on closing, or 0
+     *     to only archive with the archive command.
+     * @param isArchiveCompressed whether archived segments are gzipped.
+     */
+    public StorageConfig(Mode mode, long groupCommitMillis, int groupCommitSize, Fsync fsync, Format format,
+            long archiveAfterDays, boolean isArchiveCompressed) {
+        assert(groupCommitMillis > 0);
+        assert(groupCommitSize > 0);
+        this.mode = mode;
+        this.groupCommitMillis = groupCommitMillis;
+        this.groupCommitSize = groupCommitSize;
+        this.fsync = fsync;
+        this.format = format;
+        this.archiveAfterDays = archiveAfterDays;
+        this.isArchiveCompressed = isArchiveCompressed;
+    }
+
+    /**
+     * Obtains the configuration from the snoopy.storage.* system properties, falling back to group commit
+     * every 200 ms or 1000 records, forcing only snapshots to disk, in the text format, archiving finished tasks 30
+     * days after their date into gzipped segments.
+     * @return the configuration to use.
+     */
+    public static StorageConfig fromSystemProperties() {
+        String mode = System.getProperty("snoopy.storage.mode", "group");
+        return new StorageConfig(
+                mode.equalsIgnoreCase("sync") ? Mode.SYNC : Mode.GROUP_COMMIT,
+                Long.getLong("snoopy.storage.groupMillis", DEFAULT_GROUP_COMMIT_MILLIS),
+                Integer.getInteger("snoopy.storage.groupSize", DEFAULT_GROUP_COMMIT_SIZE),
+                fsyncOf(System.getProperty("snoopy.storage.fsync", "snapshots")),
+                System.getProperty("snoopy.storage.format", "text").equalsIgnoreCase("binary")
+                        ? Format.BINARY : Format.TEXT,
+                Long.getLong("snoopy.archive.afterDays", DEFAULT_ARCHIVE_AFTER_DAYS),
+                !System.getProperty("snoopy.archive.compress", "true").equalsIgnoreCase("false"));
+    }
+
+    /**
+     * Reads the fsync policy: never, snapshots or always. True and false, as accepted before there were policies,
+     * mean always and never.
+     */
+    private static Fsync fsyncOf(String policy) {
+        switch (policy.toLowerCase()) {
+        case "always":
+        case "true":
+            return Fsync.ALWAYS;
+        case "never":
+        case "false":
+            return Fsync.NEVER;
+        default:
+            return Fsync.SNAPSHOTS;
+        }
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public long getGroupCommitMillis() {
+        return groupCommitMillis;
+    }
+
+    public int getGroupCommitSize() {
+        return groupCommitSize;
+    }
+
+    public Fsync getFsync() {
+        return fsync;
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    public long getArchiveAfterDays() {
+        return archiveAfterDays;
+    }
+
+    public boolean isArchiveCompressed() {
+        return isArchiveCompressed;
+    }
+}
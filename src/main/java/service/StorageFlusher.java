@@ -0,0 +1,335 @@
+package service;
+
+import metrics.FlushEvent;
+import metrics.Metrics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes journal records and snapshots on behalf of Storage.
+ * In group commit mode, records are buffered and a background thread writes a whole burst of them at once,
+ * so the command that produced them does not wait for the disk.
+ * Snapshots are written to a temporary file and renamed over the previous one, which is kept as a backup, so a
+ * crash leaves either snapshot whole.
+ */
+public class StorageFlusher {
+
+    private final Path snapshotPath;
+    private final Path backupPath;
+    private final Path temporaryPath;
+    private final Path journalPath;
+    private final StorageConfig config;
+
+    // Guards the pending records and snapshot handed over by the command thread.
+    private final Object pendingLock = new Object();
+    // Serialises writes to the files, so a flush never overtakes an earlier one.
+    private final Object ioLock = new Object();
+
+    private StringBuilder pendingRecords = new StringBuilder();
+    private int pendingCount;
+    private TaskList.Snapshot pendingSnapshot;
+    private boolean isFlushQueued;
+
+    private FileChannel journal;
+    // Generation of the last snapshot written or loaded, named by the journal records that follow it.
+    private long generation;
+    private ScheduledExecutorService executor;
+    private Thread shutdownHook;
+
+    /**
+     * Creates a flusher writing the given snapshot and journal files.
+     * @param snapshotPath path of the snapshot file.
+     * @param backupPath path the previous snapshot is kept at.
+     * @param journalPath path of the journal file.
+     * @param config when and how records are written.
+     */
+    public StorageFlusher(String snapshotPath, String backupPath, String journalPath, StorageConfig config) {
+        this.snapshotPath = Path.of(snapshotPath);
+        this.backupPath = Path.of(backupPath);
+        this.temporaryPath = Path.of(snapshotPath + ".tmp");
+        this.journalPath = Path.of(journalPath);
+        this.config = config;
+    }
+
+    /**
+     * Sets the generation of the snapshot that was loaded, which the journal records written next apply to.
+     * @param generation generation of the loaded snapshot.
+     */
+    public void setGeneration(long generation) {
+        synchronized (ioLock) {
+            this.generation = generation;
+        }
+    }
+
+    /**
+     * Returns the generation of the last snapshot written or loaded.
+     * @return the current generation.
+     */
+    public long getGeneration() {
+        synchronized (ioLock) {
+            return generation;
+        }
+    }
+
+    /**
+     * Queues one journal record. In sync mode it is written before this returns.
+     * @param record the journal line, without its line break.
+     */
+    public void append(String record) {
+        appendAll(List.of(record));
+    }
+
+    /**
+     * Queues the journal records of one command together, so they are written in a single write. In sync mode they
+     * are written before this returns.
+     * @param records the journal lines, without their line breaks.
+     */
+    public void appendAll(List<String> records) {
+        synchronized (pendingLock) {
+            for (String record : records) {
+                pendingRecords.append(record).append('\n');
+            }
+            pendingCount += records.size();
+            if (config.getMode() == StorageConfig.Mode.GROUP_COMMIT) {
+                startFlusher();
+                if (pendingCount >= config.getGroupCommitSize() && !isFlushQueued) {
+                    isFlushQueued = true;
+                    executor.execute(this::flushQuietly);
+                }
+                return;
+            }
+        }
+        flush();
+    }
+
+    /**
+     * Queues a full snapshot, which replaces the journal once written.
+     * Records queued before it are dropped since the snapshot already contains them.
+     * @param snapshot every task, in order.
+     */
+    public void replaceWith(TaskList.Snapshot snapshot) {
+        synchronized (pendingLock) {
+            pendingSnapshot = snapshot;
+            pendingRecords = new StringBuilder();
+            pendingCount = 0;
+            if (config.getMode() == StorageConfig.Mode.GROUP_COMMIT) {
+                startFlusher();
+                if (!isFlushQueued) {
+                    isFlushQueued = true;
+                    executor.execute(this::flushQuietly);
+                }
+                return;
+            }
+        }
+        flush();
+    }
+
+    /**
+     * Writes everything queued so far and waits until it is on disk.
+     * @throws RuntimeException if the files cannot be written.
+     */
+    public void flush() throws RuntimeException {
+        synchronized (ioLock) {
+            TaskList.Snapshot snapshot;
+            StringBuilder records;
+            synchronized (pendingLock) {
+                snapshot = pendingSnapshot;
+                records = pendingRecords;
+                pendingSnapshot = null;
+                pendingRecords = new StringBuilder();
+                pendingCount = 0;
+                isFlushQueued = false;
+            }
+            if (snapshot == null && records.length() == 0) {
+                return;
+            }
+
+            long start = System.nanoTime();
+            FlushEvent event = new FlushEvent();
+            event.begin();
+            try {
+                long bytes = 0;
+                if (snapshot != null) {
+                    bytes += writeSnapshot(snapshot);
+                }
+                if (records.length() > 0) {
+                    bytes += writeRecords(records);
+                }
+                Metrics.recordFlush(System.nanoTime() - start, bytes);
+                event.finish(bytes, snapshot != null);
+            } catch (IOException e) {
+                requeue(snapshot, records);
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /**
+     * Writes everything queued, then stops the background flusher.
+     */
+    public void close() {
+        flush();
+        synchronized (pendingLock) {
+            if (executor != null) {
+                executor.shutdown();
+                executor = null;
+                try {
+                    Runtime.getRuntime().removeShutdownHook(shutdownHook);
+                } catch (IllegalStateException e) {
+                    // Already shutting down, the hook finds nothing left to write
+                }
+                shutdownHook = null;
+            }
+        }
+        synchronized (ioLock) {
+            closeJournal();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            // Records stay queued and are retried on the next flush
+            System.err.println("Unable to save tasks: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Starts the background flusher on first use, together with a shutdown hook that writes what is still queued.
+     */
+    private void startFlusher() {
+        if (executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "snoopy-storage-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = config.getGroupCommitMillis();
+        executor.scheduleWithFixedDelay(this::flushQuietly, millis, millis, TimeUnit.MILLISECONDS);
+        shutdownHook = new Thread(this::flushQuietly, "snoopy-storage-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    private void requeue(TaskList.Snapshot snapshot, StringBuilder records) {
+        synchronized (pendingLock) {
+            if (pendingSnapshot == null) {
+                pendingSnapshot = snapshot;
+                // records queued after a newer snapshot are already part of it
+                pendingRecords.insert(0, records);
+            }
+        }
+    }
+
+    /**
+     * Writes a snapshot of the next generation and starts an empty journal for it.
+     * A crash before the rename leaves the previous snapshot in place, and one after it leaves a journal naming the
+     * previous generation, which is then not replayed again.
+     * @return number of bytes written.
+     */
+    private long writeSnapshot(TaskList.Snapshot snapshot) throws IOException {
+        long nextGeneration = generation + 1;
+        ByteBuffer[] contents = config.getFormat() == StorageConfig.Format.BINARY
+                ? BinarySnapshotFile.encode(snapshot, nextGeneration)
+                : SnapshotFile.encode(snapshot, nextGeneration);
+        ByteBuffer last = contents[contents.length - 1];
+        long bytes = 0;
+        for (ByteBuffer buffer : contents) {
+            bytes += buffer.remaining();
+        }
+        boolean isForced = config.getFsync() != StorageConfig.Fsync.NEVER;
+        snapshotPath.toAbsolutePath().getParent().toFile().mkdirs();
+        try (FileChannel channel = FileChannel.open(temporaryPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (last.hasRemaining()) {
+                channel.write(contents);
+            }
+            if (isForced) {
+                channel.force(false);
+            }
+        }
+        if (Files.exists(snapshotPath)) {
+            Files.move(snapshotPath, backupPath, StandardCopyOption.ATOMIC_MOVE);
+        }
+        Files.move(temporaryPath, snapshotPath, StandardCopyOption.ATOMIC_MOVE);
+        if (isForced) {
+            forceDirectory();
+        }
+        generation = nextGeneration;
+
+        // the snapshot now holds everything the journal did
+        closeJournal();
+        journal = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        return bytes + write(journal, generationRecord(), isForced);
+    }
+
+    private long writeRecords(StringBuilder records) throws IOException {
+        boolean isForced = config.getFsync() == StorageConfig.Fsync.ALWAYS;
+        long bytes = 0;
+        if (journal == null) {
+            journalPath.toAbsolutePath().getParent().toFile().mkdirs();
+            journal = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+            if (journal.size() == 0) {
+                bytes += write(journal, generationRecord(), false);
+            }
+        }
+        return bytes + write(journal, records, isForced);
+    }
+
+    private String generationRecord() {
+        return Storage.GENERATION_RECORD + Storage.FIELD_SEPARATOR + generation + "\n";
+    }
+
+    private long write(FileChannel channel, CharSequence contents, boolean isForced) throws IOException {
+        ByteBuffer bytes = StandardCharsets.UTF_8.encode(CharBuffer.wrap(contents));
+        int length = bytes.remaining();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        if (isForced) {
+            channel.force(false);
+        }
+        return length;
+    }
+
+    /**
+     * Forces the renames in the data directory to disk. Not every platform can open a directory, and there the
+     * renames are left to the operating system.
+     */
+    private void forceDirectory() {
+        try (FileChannel directory = FileChannel.open(snapshotPath.toAbsolutePath().getParent(),
+                StandardOpenOption.READ)) {
+            directory.force(true);
+        } catch (IOException e) {
+            // Directories cannot be opened on this platform
+        }
+    }
+
+    private void closeJournal() {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            // Nothing left to write on it
+        }
+        journal = null;
+    }
+}
@@ -0,0 +1,87 @@
+package service;
+
+import model.Task;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Index from each tag to the bitset of ids of the tasks with that tag.
+ * Kept up to date by TaskList, so tag queries are answered with bitset operations instead of a scan. Keyed on ids
+ * rather than positions, so removing a task only clears its own bits.
+ */
+public class TagIndex {
+
+    private static final BitSet NONE = new BitSet();
+
+    private final Map<String, BitSet> postings = new HashMap<>();
+
+    /**
+     * Adds the tags of the task.
+     * @param task the task that was added to the list.
+     */
+    public void add(Task task) {
+        for (String tag : tags(task)) {
+            postings.computeIfAbsent(tag, key -> new BitSet()).set(task.getId());
+        }
+    }
+
+    /**
+     * Removes the tags of the task.
+     * @param task the task that was removed from the list.
+     */
+    public void remove(Task task) {
+        for (String tag : tags(task)) {
+            BitSet ids = postings.get(tag);
+            if (ids == null) {
+                continue;
+            }
+            ids.clear(task.getId());
+            if (ids.isEmpty()) {
+                postings.remove(tag);
+            }
+        }
+    }
+
+    /**
+     * Obtains the ids of the tasks matching a tag query, such as "work", "work and urgent" or
+     * "work or home". Tags next to each other are combined with and, which binds tighter than or.
+     * @param query the tags to look for, optionally with their #.
+     * @return the matching ids.
+     */
+    public BitSet query(String query) {
+        BitSet result = new BitSet();
+        BitSet term = null;
+        for (String token : query.trim().split("\\s+")) {
+            if (token.equalsIgnoreCase("or")) {
+                if (term != null) {
+                    result.or(term);
+                }
+                term = null;
+                continue;
+            }
+            if (token.isEmpty() || token.equalsIgnoreCase("and")) {
+                continue;
+            }
+            BitSet tagged = postings.getOrDefault(token.startsWith("#") ? token.substring(1) : token, NONE);
+            if (term == null) {
+                term = (BitSet) tagged.clone();
+            } else {
+                term.and(tagged);
+            }
+        }
+        if (term != null) {
+            result.or(term);
+        }
+        return result;
+    }
+
+    /**
+     * Obtains the tags of a task. A tag given as "work urgent" counts as the two tags work and urgent.
+     */
+    private static String[] tags(Task task) {
+        String tag = task.getTag().trim();
+        return tag.isEmpty() ? new String[0] : tag.split("\\s+");
+    }
+}
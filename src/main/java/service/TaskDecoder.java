@@ -0,0 +1,95 @@
+package service;
+
+import exceptions.DukeException;
+import model.Deadline;
+import model.Event;
+import model.Task;
+import model.Todo;
+
+/**
+ * Builds tasks straight from the fields of a stored line (see {@link Task#fileSavingString()}),
+ * without going through the command parser.
+ */
+public class TaskDecoder {
+
+    private TaskDecoder() {
+    }
+
+    /**
+     * Decodes one stored line into the task it describes, including its done state and tag.
+     * @param fields the stored line split on " | ".
+     * @return the decoded task.
+     * @throws DukeException if the line is not a valid task record.
+     */
+    public static Task decode(String[] fields) throws DukeException {
+        if (fields.length < 3) {
+            throw new DukeException("Record has too few fields");
+        }
+        String type = fields[0];
+        String done = fields[1];
+        String desc = fields[2];
+
+        Task task;
+        switch (type) {
+        case "T":
+            task = new Todo(desc, tagAt(fields, 3));
+            task.setId(idAt(fields, 4));
+            break;
+        case "D":
+            requireFields(fields, 4);
+            task = new Deadline(desc, fields[3], tagAt(fields, 4));
+            task.setId(idAt(fields, 5));
+            break;
+        case "E":
+            requireFields(fields, 5);
+            task = new Event(desc, fields[3], fields[4], tagAt(fields, 5));
+            task.setId(idAt(fields, 6));
+            break;
+        default:
+            throw new DukeException("Unknown task type: " + type);
+        }
+
+        switch (done) {
+        case "1":
+            task.markAsDone();
+            break;
+        case "0":
+            break;
+        default:
+            throw new DukeException("Unknown done flag: " + done);
+        }
+        return task;
+    }
+
+    private static void requireFields(String[] fields, int count) {
+        if (fields.length < count) {
+            throw new DukeException("Record has too few fields");
+        }
+    }
+
+    /**
+     * Obtains the id stored at the given field. Files written before tasks had ids have none, and neither do
+     * hand-edited lines with something else there; those tasks get a new id when added.
+     */
+    private static int idAt(String[] fields, int i) {
+        if (fields.length <= i) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Integer.parseInt(fields[i]));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Obtains the tag stored at the given field, if any.
+     * Older files wrote untagged todos with a literal "null" tag, so that is read back as no tag too.
+     */
+    private static String tagAt(String[] fields, int i) {
+        if (fields.length <= i || fields[i].isEmpty() || fields[i].equals("null")) {
+            return null;
+        }
+        return fields[i];
+    }
+}
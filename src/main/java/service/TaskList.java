@@ -1,15 +1,248 @@
 package service;
 
+import exceptions.DukeException;
+import metrics.Metrics;
 import model.Task;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+/**
+ * The user's tasks, safe to share between threads.
+ * Writers take turns on a lock and publish a new immutable {@link Snapshot} with a higher version after every
+ * change, so reading tasks by their index number never blocks. Lookups through the indexes share a read lock.
+ * <p>
+ * Every task gets a stable id when it is added, and tasks stay in id order. The tasks are kept in a persistent
+ * {@link TaskVector}, so every change only copies the path to the task it touches and shares the rest with the
+ * versions before it. Tasks are never changed once in the list, marking one puts a marked copy in its place, so
+ * snapshots taken before keep seeing the tasks as they were.
+ * <p>
+ * The last MAX_UNDO_STEPS versions are kept, along with the tasks each change took out of and put into the indexes,
+ * so changes can be undone and redone by going back to the version before and patching the indexes.
+ * <p>
+ * A list opened lazily from a snapshot file can be counted and read by index number straight away, each task only
+ * being decoded the first time it is read, while the rest are decoded and indexed in the background. Queries through
+ * the indexes and changes wait until that is done.
+ */
 public class TaskList{
 
-    private ArrayList<Task> todos;
+    // Most changes that can be undone.
+    static final int MAX_UNDO_STEPS = 1000;
+
+    /**
+     * The tasks as they were at one version of the list. Never changes once published.
+     */
+    public static final class Snapshot {
+        private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(Task[].class);
+
+        private final TaskVector tasks;
+        private final long version;
+        // Where the tasks not decoded yet are read from, or null once every task is.
+        private final SnapshotIndex stored;
+
+        private Snapshot(TaskVector tasks, long version, SnapshotIndex stored) {
+            this.tasks = tasks;
+            this.version = version;
+            this.stored = stored;
+        }
+
+        /**
+         * Obtains the task with the corresponding index number.
+         * @param i the index number.
+         * @return task with the corresponding index number.
+         */
+        public Task get(int i) {
+            if (i < 0 || i >= tasks.size()) {
+                throw new IndexOutOfBoundsException("Index " + i + " out of bounds for length " + tasks.size());
+            }
+            return stored == null ? tasks.get(i) : decodeOnce(i);
+        }
+
+        /**
+         * Obtains a task of a lazily opened list, decoding it from the snapshot file first if nobody has read it yet.
+         * The vector of such a list was built with every leaf full, so the task is at i % WIDTH of its leaf.
+         */
+        private Task decodeOnce(int i) {
+            Task[] leaf = tasks.leafOf(i);
+            int offset = i & (TaskVector.WIDTH - 1);
+            Task task = (Task) SLOTS.getAcquire(leaf, offset);
+            if (task != null) {
+                return task;
+            }
+            Task decoded = stored.decode(i);
+            // two threads may decode the same task, but only one of the objects is ever handed out
+            Task first = (Task) SLOTS.compareAndExchange(leaf, offset, null, decoded);
+            return first == null ? decoded : first;
+        }
+
+        /**
+         * Returns the highest id of the tasks handed out so far, without decoding any more of them.
+         */
+        private int highestIdReadSoFar() {
+            int highest = 0;
+            for (int i = 0; i < tasks.size(); i++) {
+                Task task = stored == null
+                        ? tasks.get(i)
+                        : (Task) SLOTS.getAcquire(tasks.leafOf(i), i & (TaskVector.WIDTH - 1));
+                if (task != null) {
+                    highest = Math.max(highest, task.getId());
+                }
+            }
+            return highest;
+        }
+
+        public int size() {
+            return tasks.size();
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * Obtains the index number of the task with the given id. Tasks are kept in id order, so this is a binary
+         * search over the index numbers.
+         * @param id the id of the task.
+         * @return the index number of the task, or -1 if no task has that id.
+         */
+        public int indexOfId(int id) {
+            int i = positionOfId(id);
+            return i < tasks.size() && get(i).getId() == id ? i : -1;
+        }
+
+        /**
+         * Obtains the index number the task with the given id has, or would have if it were put in.
+         * @param id the id of the task.
+         * @return the number of tasks with a lower id.
+         */
+        int positionOfId(int id) {
+            int low = 0;
+            int high = tasks.size() - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int middleId = get(middle).getId();
+                if (middleId == id) {
+                    return middle;
+                } else if (middleId < id) {
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Runs the action on every task, in order, without looking each one up by index number.
+         * @param action what to do with each task.
+         */
+        public void forEach(Consumer<Task> action) {
+            if (stored == null) {
+                tasks.forEach(action);
+                return;
+            }
+            for (int i = 0; i < tasks.size(); i++) {
+                action.accept(decodeOnce(i));
+            }
+        }
+    }
+
+    /**
+     * What undoing or redoing a change did to the list.
+     */
+    public static final class Change {
+        private final List<Task> removed;
+        private final List<Task> added;
+
+        private Change(List<Task> removed, List<Task> added) {
+            this.removed = removed;
+            this.added = added;
+        }
+
+        /**
+         * Returns the tasks taken out of the list, including the old state of any task that was marked or unmarked.
+         * @return the tasks taken out, in list order.
+         */
+        public List<Task> getRemoved() {
+            return removed;
+        }
+
+        /**
+         * Returns the tasks put into the list, including the new state of any task that was marked or unmarked.
+         * @return the tasks put in, in list order.
+         */
+        public List<Task> getAdded() {
+            return added;
+        }
+    }
+
+    /**
+     * One change to the list: the versions before and after it, and the tasks it took out and put in.
+     */
+    private static final class Step {
+        private final TaskVector before;
+        private final TaskVector after;
+        private final Change change;
+
+        private Step(TaskVector before, TaskVector after, Change change) {
+            this.before = before;
+            this.after = after;
+            this.change = change;
+        }
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final SearchIndex searchIndex;
+    private final TagIndex tagIndex;
+    private final TimeIndex timeIndex;
+    // The deadlines and events of timeIndex not done yet, so overdue tasks are a range of it.
+    private final TimeIndex undoneTimeIndex;
+    private volatile Snapshot snapshot;
+    // Changes that can be undone, latest last, and the ones undone that can be redone, latest undone last.
+    private final Deque<Step> undoSteps = new ArrayDeque<>();
+    private final Deque<Step> redoSteps = new ArrayDeque<>();
+    // Highest id given out so far. Ids are never reused while the list is open.
+    private int lastId;
+    // Highest id of a task kept elsewhere, e.g. archived, which new tasks must not reuse either.
+    private int reservedId;
+    // Index the last page of the list command stopped at.
+    private volatile int listCursor;
+    // Released once a snapshot file opened lazily is decoded and indexed, null when there is nothing to wait for.
+    private volatile CountDownLatch loading;
 
     public TaskList() {
-        this.todos = new ArrayList<Task>();
+        this.snapshot = new Snapshot(TaskVector.EMPTY, 0, null);
+        this.searchIndex = new SearchIndex();
+        this.tagIndex = new TagIndex();
+        this.timeIndex = new TimeIndex();
+        this.undoneTimeIndex = new TimeIndex();
+    }
+
+    /**
+     * Obtains the tasks as they are now, without waiting for writers.
+     * @return the current snapshot of the tasklist.
+     */
+    public Snapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Obtains the version of the tasklist, which goes up with every change.
+     * @return the current version.
+     */
+    public long getVersion() {
+        return snapshot.version;
     }
 
     /**
@@ -18,7 +251,19 @@ public class TaskList{
      * @return task with the corresponding index number.
      */
     public Task get(int i) {
-        return todos.get(i);
+        return snapshot.get(i);
+    }
+
+    /**
+     * Obtains the index number of the task with the given id.
+     * @param id the id of the task.
+     * @return the index number of the task, or -1 if no task has that id.
+     */
+    public int indexOfId(int id) {
+        awaitLoaded();
+        int index = snapshot.indexOfId(id);
+        Metrics.recordIndexLookup(Metrics.Index.ID, index >= 0);
+        return index;
     }
 
     /**
@@ -27,7 +272,227 @@ public class TaskList{
      * @return task that was removed.
      */
     public Task remove(int i) {
-        return todos.remove(i);
+        awaitLoaded();
+        lock.writeLock().lock();
+        try {
+            Snapshot current = snapshot;
+            Task removed = current.get(i);
+            searchIndex.remove(removed);
+            tagIndex.remove(removed);
+            timeIndex.remove(removed);
+            undoneTimeIndex.remove(removed);
+            publish(current.tasks.remove(i), new Change(List.of(removed), List.of()));
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the tasks at the given index numbers as one change, updating the indexes in one pass.
+     * @param positions the index numbers of the tasks to remove.
+     * @return the tasks removed, in list order.
+     */
+    public List<Task> removeAll(BitSet positions) {
+        awaitLoaded();
+        lock.writeLock().lock();
+        try {
+            Snapshot current = snapshot;
+            checkPositions(positions, current);
+            List<Task> removed = new ArrayList<>(positions.cardinality());
+            if (positions.isEmpty()) {
+                return removed;
+            }
+            TaskVector tasks;
+            if (isRebuildCheaper(positions, current)) {
+                List<Task> kept = new ArrayList<>(current.size() - positions.cardinality());
+                int[] i = {0};
+                current.forEach(task -> (positions.get(i[0]++) ? removed : kept).add(task));
+                tasks = TaskVector.of(kept);
+            } else {
+                for (int i = positions.nextSetBit(0); i >= 0; i = positions.nextSetBit(i + 1)) {
+                    removed.add(current.get(i));
+                }
+                tasks = current.tasks;
+                // from the back, so the index numbers still to remove stay where they were
+                for (int i = positions.length() - 1; i >= 0; i = positions.previousSetBit(i - 1)) {
+                    tasks = tasks.remove(i);
+                }
+            }
+            unindex(removed);
+            publish(tasks, new Change(removed, List.of()));
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Marks the tasks at the given index numbers as done as one change, updating the indexes in one pass.
+     * @param positions the index numbers of the tasks to mark.
+     * @return the tasks that were not done before, as they are now, in list order.
+     */
+    public List<Task> markAllAsDone(BitSet positions) {
+        return setAllDone(positions, true);
+    }
+
+    /**
+     * Marks the tasks at the given index numbers as not done as one change, updating the indexes in one pass.
+     * @param positions the index numbers of the tasks to unmark.
+     * @return the tasks that were done before, as they are now, in list order.
+     */
+    public List<Task> markAllAsUndone(BitSet positions) {
+        return setAllDone(positions, false);
+    }
+
+    private List<Task> setAllDone(BitSet positions, boolean isDone) {
+        awaitLoaded();
+        lock.writeLock().lock();
+        try {
+            Snapshot current = snapshot;
+            checkPositions(positions, current);
+            List<Task> before = new ArrayList<>();
+            List<Task> after = new ArrayList<>();
+            TaskVector tasks;
+            if (isRebuildCheaper(positions, current)) {
+                List<Task> all = new ArrayList<>(current.size());
+                int[] i = {0};
+                current.forEach(task -> {
+                    if (positions.get(i[0]++) && task.isDone() != isDone) {
+                        before.add(task);
+                        task = task.withDone(isDone);
+                        after.add(task);
+                    }
+                    all.add(task);
+                });
+                tasks = TaskVector.of(all);
+            } else {
+                tasks = current.tasks;
+                for (int i = positions.nextSetBit(0); i >= 0; i = positions.nextSetBit(i + 1)) {
+                    Task task = current.get(i);
+                    if (task.isDone() != isDone) {
+                        Task marked = task.withDone(isDone);
+                        before.add(task);
+                        after.add(marked);
+                        tasks = tasks.set(i, marked);
+                    }
+                }
+            }
+            if (after.isEmpty()) {
+                return after;
+            }
+            unindex(before);
+            index(after);
+            publish(tasks, new Change(before, after));
+            return after;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void checkPositions(BitSet positions, Snapshot current) {
+        if (positions.length() > current.size()) {
+            throw new IndexOutOfBoundsException("Index " + (positions.length() - 1) + " out of bounds for length "
+                    + current.size());
+        }
+    }
+
+    /**
+     * Tells whether changing this many tasks costs less by building a new vector in one pass over every leaf than by
+     * copying a path for each of them.
+     */
+    private static boolean isRebuildCheaper(BitSet positions, Snapshot current) {
+        return positions.cardinality() > current.size() / TaskVector.WIDTH;
+    }
+
+    /**
+     * Removes every task matching the filter in a single pass, building the vector of the tasks left once instead
+     * of copying a path for every task removed.
+     * @param filter which tasks to remove.
+     * @return the tasks removed, in list order.
+     */
+    public List<Task> removeIf(Predicate<Task> filter) {
+        awaitLoaded();
+        lock.writeLock().lock();
+        try {
+            List<Task> removed = new ArrayList<>();
+            List<Task> kept = new ArrayList<>();
+            snapshot.forEach(task -> (filter.test(task) ? removed : kept).add(task));
+            if (removed.isEmpty()) {
+                return removed;
+            }
+            unindex(removed);
+            publish(TaskVector.of(kept), new Change(removed, List.of()));
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Packs tasks into a snapshot of their own, without indexing them or giving them ids, e.g. to write them to a file.
+     * @param tasks the tasks, in id order.
+     * @return a snapshot holding them.
+     */
+    static Snapshot snapshotOf(List<Task> tasks) {
+        return new Snapshot(TaskVector.of(tasks), 0, null);
+    }
+
+    /**
+     * Keeps new tasks from getting any id up to the given one, e.g. because archived tasks still have them.
+     * @param id the highest id taken outside the tasklist.
+     */
+    void reserveIds(int id) {
+        lock.writeLock().lock();
+        try {
+            reservedId = Math.max(reservedId, id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Publishes the tasks after a change as the next version, and keeps the change so it can be undone. Must be
+     * called holding the write lock, with the indexes already updated.
+     */
+    private void publish(TaskVector tasks, Change change) {
+        Snapshot current = snapshot;
+        undoSteps.addLast(new Step(current.tasks, tasks, change));
+        if (undoSteps.size() > MAX_UNDO_STEPS) {
+            undoSteps.removeFirst();
+        }
+        redoSteps.clear();
+        snapshot = new Snapshot(tasks, current.version + 1, null);
+    }
+
+    /**
+     * Takes tasks out of every index.
+     */
+    private void unindex(List<Task> tasks) {
+        for (Task task : tasks) {
+            searchIndex.remove(task);
+            tagIndex.remove(task);
+        }
+        timeIndex.removeAll(tasks);
+        undoneTimeIndex.removeAll(tasks);
+    }
+
+    /**
+     * Puts tasks into every index.
+     */
+    private void index(List<Task> tasks) {
+        for (Task task : tasks) {
+            index(task);
+        }
+    }
+
+    private void index(Task task) {
+        searchIndex.add(task);
+        tagIndex.add(task);
+        timeIndex.add(task);
+        if (!task.isDone()) {
+            undoneTimeIndex.add(task);
+        }
     }
 
     /**
@@ -35,10 +500,403 @@ public class TaskList{
      * @return number of items in the tasklist
      */
     public int size() {
-        return todos.size();
+        return snapshot.size();
     }
 
+    /**
+     * Adds the task at the end of the list, giving it an id unless it already has one from the data file.
+     * @param newTask the task to add.
+     */
     public void add(Task newTask) {
-       todos.add(newTask);
+        awaitLoaded();
+        lock.writeLock().lock();
+        try {
+            TaskVector tasks = append(newTask);
+            publish(tasks, new Change(List.of(), List.of(newTask)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gives the task an id and indexes it. Must be called holding the write lock.
+     * @return the tasks with the new one appended, which are not published yet.
+     */
+    private TaskVector append(Task newTask) {
+        // tasks must stay in id order, so an id that does not come after the last one is replaced
+        if (newTask.getId() <= lastId) {
+            newTask.setId(Math.max(lastId, reservedId) + 1);
+        }
+        lastId = newTask.getId();
+        index(newTask);
+        return snapshot.tasks.append(newTask);
+    }
+
+    /**
+     * Puts a task back at the given index number with the id it already has, e.g. when replaying the journal record
+     * of an undo that brought it back.
+     * @param i the index number, from 0 to the size of the list.
+     * @param task the task, whose id must come between those of its neighbours.
+     * @throws DukeException if the id would not keep the list in id order.
+     */
+    void insert(int i, Task task) {
+        awaitLoaded();
+        lock.writeLock().lock();
+        try {
+            Snapshot current = snapshot;
+            if (i < 0 || i > current.size()) {
+                throw new IndexOutOfBoundsException("Index " + i + " out of bounds for length " + current.size());
+            }
+            if (i > 0 && current.get(i - 1).getId() >= task.getId()
+                    || i < current.size() && current.get(i).getId() <= task.getId()) {
+                throw new DukeException("Task " + task.getId() + " is out of id order");
+            }
+            lastId = Math.max(lastId, task.getId());
+            index(task);
+            publish(current.tasks.insert(i, task), new Change(List.of(), List.of(task)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Marks the task with the corresponding index number as done.
+     * @param i the index number.
+     * @return the task as it is now.
+     */
+    public Task markAsDone(int i) {
+        return setDone(i, true);
+    }
+
+    /**
+     * Marks the task with the corresponding index number as not done.
+     * @param i the index number.
+     * @return the task as it is now.
+     */
+    public Task markAsUndone(int i) {
+        return setDone(i, false);
+    }
+
+    private Task setDone(int i, boolean isDone) {
+        awaitLoaded();
+        lock.writeLock().lock();
+        try {
+            Snapshot current = snapshot;
+            Task task = current.get(i);
+            if (task.isDone() == isDone) {
+                return task;
+            }
+            // marked as a copy, so older versions of the list keep the task as it was
+            Task marked = task.withDone(isDone);
+            unindex(List.of(task));
+            index(List.of(marked));
+            publish(current.tasks.set(i, marked), new Change(List.of(task), List.of(marked)));
+            return marked;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Undoes the latest change not undone yet, putting the list back the way it was before it.
+     * @return what undoing did, or null if there is nothing to undo.
+     */
+    public Change undo() {
+        awaitLoaded();
+        lock.writeLock().lock();
+        try {
+            Step step = undoSteps.pollLast();
+            if (step == null) {
+                return null;
+            }
+            assert(snapshot.tasks == step.after);
+            redoSteps.addLast(step);
+            return goTo(step.before, new Change(step.change.added, step.change.removed));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Redoes the latest change undone, as long as nothing changed the list since.
+     * @return what redoing did, or null if there is nothing to redo.
+     */
+    public Change redo() {
+        awaitLoaded();
+        lock.writeLock().lock();
+        try {
+            Step step = redoSteps.pollLast();
+            if (step == null) {
+                return null;
+            }
+            assert(snapshot.tasks == step.before);
+            undoSteps.addLast(step);
+            return goTo(step.after, step.change);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Publishes a version kept in the history, patching the indexes with what changes between the two.
+     */
+    private Change goTo(TaskVector tasks, Change change) {
+        unindex(change.removed);
+        index(change.added);
+        snapshot = new Snapshot(tasks, snapshot.version + 1, null);
+        return change;
+    }
+
+    /**
+     * Forgets every change that could be undone or redone, e.g. once the list was loaded or tasks were moved to the
+     * archive, which undoing must not bring back.
+     */
+    void clearHistory() {
+        lock.writeLock().lock();
+        try {
+            undoSteps.clear();
+            redoSteps.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Obtains the tasks whose description or tag matches every word of the query, ignoring case, as the start of a
+     * word or with a typo or two.
+     * @param query words to look for, separated by spaces.
+     * @return the matching tasks, best first.
+     */
+    public List<Task> find(String query) {
+        return search(query, Integer.MAX_VALUE).getTasks();
+    }
+
+    /**
+     * Obtains the tasks whose description or tag matches every word of the query best, without ranking the rest.
+     * @param query words to look for, separated by spaces.
+     * @param limit most tasks to return.
+     * @return the best tasks, best first, and the number matching.
+     */
+    public SearchIndex.Result search(String query, int limit) {
+        awaitLoaded();
+        lock.readLock().lock();
+        try {
+            SearchIndex.Result result = searchIndex.search(query, limit);
+            Metrics.recordIndexLookup(Metrics.Index.SEARCH, result.getTotal() > 0);
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Obtains the index numbers of the tasks matching a tag query, e.g. "work", "work and urgent" or "work or home".
+     * @param query the tags to look for.
+     * @return the matching index numbers.
+     */
+    public BitSet findByTags(String query) {
+        awaitLoaded();
+        BitSet ids;
+        Snapshot current;
+        lock.readLock().lock();
+        try {
+            ids = tagIndex.query(query);
+            current = snapshot;
+            Metrics.recordIndexLookup(Metrics.Index.TAG, !ids.isEmpty());
+        } finally {
+            lock.readLock().unlock();
+        }
+        BitSet positions = new BitSet();
+        for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+            positions.set(current.indexOfId(id));
+        }
+        return positions;
+    }
+
+    /**
+     * Counts the tasks matching a tag query, e.g. "work", "work and urgent" or "work or home".
+     * @param query the tags to look for.
+     * @return number of matching tasks.
+     */
+    public int countByTags(String query) {
+        awaitLoaded();
+        lock.readLock().lock();
+        try {
+            int count = tagIndex.query(query).cardinality();
+            Metrics.recordIndexLookup(Metrics.Index.TAG, count > 0);
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Obtains the deadlines and events due strictly before the given moment, earliest first.
+     * @param end the moment to stop at.
+     * @return the tasks due before it.
+     */
+    public List<Task> findDueBefore(LocalDateTime end) {
+        awaitLoaded();
+        lock.readLock().lock();
+        try {
+            List<Task> tasks = timeIndex.before(end);
+            Metrics.recordIndexLookup(Metrics.Index.TIME, !tasks.isEmpty());
+            return tasks;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Obtains the deadlines and events not done yet that are due strictly before the given moment, earliest first.
+     * @param end the moment to stop at, e.g. now for the overdue tasks.
+     * @return the tasks not done that are due before it.
+     */
+    public List<Task> findUndoneDueBefore(LocalDateTime end) {
+        awaitLoaded();
+        lock.readLock().lock();
+        try {
+            List<Task> tasks = undoneTimeIndex.before(end);
+            Metrics.recordIndexLookup(Metrics.Index.TIME, !tasks.isEmpty());
+            return tasks;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Obtains the deadlines and events due between the two moments, both included, earliest first.
+     * @param start the earliest moment.
+     * @param end the latest moment.
+     * @return the tasks due in between.
+     */
+    public List<Task> findDueBetween(LocalDateTime start, LocalDateTime end) {
+        awaitLoaded();
+        lock.readLock().lock();
+        try {
+            List<Task> tasks = timeIndex.between(start, end);
+            Metrics.recordIndexLookup(Metrics.Index.TIME, !tasks.isEmpty());
+            return tasks;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Opens the tasks of a snapshot file without decoding any of them, so they can be counted and read by index
+     * number straight away. Queries through the indexes and changes wait until {@link #finishLoading()} or
+     * {@link #finishLoading(List)} is called.
+     * @param stored the index of the snapshot file.
+     */
+    void openLazily(SnapshotIndex stored) {
+        lock.writeLock().lock();
+        try {
+            assert(snapshot.size() == 0);
+            loading = new CountDownLatch(1);
+            snapshot = new Snapshot(TaskVector.of(Collections.nCopies(stored.size(), null)), snapshot.version + 1,
+                    stored);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Decodes every task of the snapshot file opened lazily that was not read yet, indexes them all and lets the
+     * queries and changes waiting for it through.
+     * @throws RuntimeException if a task cannot be decoded or the ids are not in ascending order, in which case the
+     *     list is left as it was and still loading, to be replaced through {@link #finishLoading(List)}.
+     */
+    void finishLoading() {
+        boolean isToBeReplaced = false;
+        lock.writeLock().lock();
+        try {
+            Snapshot current = snapshot;
+            // decode and check every task before touching anything. The tasks may already have been read, so ids
+            // that would have to be reassigned are not changed under the readers, the tasks are read again instead
+            int[] previousId = {lastId};
+            current.forEach(task -> {
+                if (task.getId() <= previousId[0]) {
+                    throw new DukeException("Task " + task.getId() + " is out of id order");
+                }
+                previousId[0] = task.getId();
+            });
+            lastId = previousId[0];
+            current.forEach(this::index);
+            // same tasks, so the version stays
+            snapshot = new Snapshot(current.tasks, current.version, null);
+        } catch (RuntimeException e) {
+            isToBeReplaced = true;
+            throw e;
+        } finally {
+            lock.writeLock().unlock();
+            // anything worse than a task that cannot be loaded must not keep the waiting from going on for good
+            if (!isToBeReplaced) {
+                release();
+            }
+        }
+    }
+
+    /**
+     * Replaces the tasks of the snapshot file opened lazily with the given ones, e.g. recovered from the previous
+     * snapshot because the file turned out to be damaged, and lets the queries and changes waiting through.
+     * @param tasks the tasks to keep instead, in order.
+     */
+    void finishLoading(List<Task> tasks) {
+        lock.writeLock().lock();
+        try {
+            // the tasks opened lazily may have been read already, so their ids are never given to new tasks
+            int issuedId = Math.max(lastId, snapshot.highestIdReadSoFar());
+            snapshot = new Snapshot(TaskVector.EMPTY, snapshot.version + 1, null);
+            lastId = 0;
+            for (Task task : tasks) {
+                snapshot = new Snapshot(append(task), snapshot.version, null);
+            }
+            lastId = Math.max(lastId, issuedId);
+        } finally {
+            lock.writeLock().unlock();
+            release();
+        }
+    }
+
+    private void release() {
+        CountDownLatch latch = loading;
+        loading = null;
+        if (latch != null) {
+            latch.countDown();
+        }
+    }
+
+    /**
+     * Waits until a snapshot file opened lazily is fully decoded and indexed.
+     */
+    private void awaitLoaded() {
+        CountDownLatch latch = loading;
+        if (latch == null) {
+            return;
+        }
+        boolean isInterrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                isInterrupted = true;
+            }
+        }
+        if (isInterrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the index of the first task not shown yet by the list command.
+     * @return the index the last page of the list stopped at.
+     */
+    public int getListCursor() {
+        return listCursor;
+    }
+
+    public void setListCursor(int listCursor) {
+        this.listCursor = listCursor;
     }
 }
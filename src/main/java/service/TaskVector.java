@@ -0,0 +1,348 @@
+package service;
+
+import model.Task;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * An immutable list of tasks kept in a 32-way bitmapped trie. Every change copies only the path from the root to the
+ * leaf it touches and shares the rest with the vector it was made from, so a change costs O(log n) time and memory
+ * and any number of older versions can be kept, e.g. to undo changes or to read from while the list moves on.
+ * <p>
+ * As long as every leaf but the last is full, as they are after appending, the child holding an index is found from
+ * its bits alone. Deleting from or inserting into the middle leaves some leaves short, so the nodes above them keep a
+ * table of where each child ends and are searched through it instead.
+ */
+final class TaskVector {
+
+    static final int BITS = 5;
+    static final int WIDTH = 1 << BITS;
+    // Leaves shrunk below this by deletes are merged with a neighbour, so the trie does not fill with tiny leaves.
+    private static final int MIN_LEAF_SIZE = WIDTH / 4;
+    private static final Task[] EMPTY_LEAF = new Task[0];
+
+    static final TaskVector EMPTY = new TaskVector(EMPTY_LEAF, 0, 0);
+
+    /**
+     * An inner node of the trie, whose children are either all nodes or all leaves.
+     */
+    private static final class Node {
+        private final Object[] children;
+        // Where each child ends, or null if every child but the last one is full.
+        private final int[] ends;
+        private final int size;
+
+        private Node(Object[] children, int[] ends, int size) {
+            this.children = children;
+            this.ends = ends;
+            this.size = size;
+        }
+
+        private int childOf(int i, int shift) {
+            if (ends == null) {
+                return Math.min(i >>> shift, children.length - 1);
+            }
+            int child = 0;
+            while (child < children.length - 1 && ends[child] <= i) {
+                child++;
+            }
+            return child;
+        }
+
+        private int startOf(int child, int shift) {
+            if (child == 0) {
+                return 0;
+            }
+            return ends == null ? child << shift : ends[child - 1];
+        }
+    }
+
+    // A leaf (Task[]) when shift is 0, a Node otherwise.
+    private final Object root;
+    // Bits of the index each child of the root covers, 0 when the root is a leaf.
+    private final int shift;
+    private final int size;
+
+    private TaskVector(Object root, int shift, int size) {
+        this.root = root;
+        this.shift = shift;
+        this.size = size;
+    }
+
+    /**
+     * Builds a vector holding the given tasks, with every leaf full.
+     * @param tasks the tasks, in order. May hold nulls, e.g. for tasks not decoded yet.
+     * @return a vector of them.
+     */
+    static TaskVector of(List<Task> tasks) {
+        if (tasks.isEmpty()) {
+            return EMPTY;
+        }
+        Object[] level = new Object[(tasks.size() + WIDTH - 1) / WIDTH];
+        for (int i = 0; i < level.length; i++) {
+            int start = i * WIDTH;
+            level[i] = tasks.subList(start, Math.min(tasks.size(), start + WIDTH)).toArray(EMPTY_LEAF);
+        }
+        int shift = 0;
+        while (level.length > 1) {
+            shift += BITS;
+            Object[] parents = new Object[(level.length + WIDTH - 1) / WIDTH];
+            for (int i = 0; i < parents.length; i++) {
+                parents[i] = nodeOf(Arrays.copyOfRange(level, i * WIDTH, Math.min(level.length, (i + 1) * WIDTH)),
+                        shift);
+            }
+            level = parents;
+        }
+        return new TaskVector(level[0], shift, tasks.size());
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Obtains the task at the given index number.
+     * @param i the index number, which must be in bounds.
+     * @return the task at it.
+     */
+    Task get(int i) {
+        Object node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            Node inner = (Node) node;
+            int child = inner.childOf(i, level);
+            i -= inner.startOf(child, level);
+            node = inner.children[child];
+        }
+        return ((Task[]) node)[i];
+    }
+
+    /**
+     * Obtains the leaf holding the task at the given index number. In a vector built by {@link #of(List)} and not
+     * changed since, the task is at i % WIDTH of it.
+     * @param i the index number, which must be in bounds.
+     * @return the leaf, shared with the vector.
+     */
+    Task[] leafOf(int i) {
+        Object node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            Node inner = (Node) node;
+            int child = inner.childOf(i, level);
+            i -= inner.startOf(child, level);
+            node = inner.children[child];
+        }
+        return (Task[]) node;
+    }
+
+    /**
+     * Runs the action on every task, in order, walking the leaves instead of looking each one up.
+     * @param action what to do with each task.
+     */
+    void forEach(Consumer<Task> action) {
+        forEach(root, shift, action);
+    }
+
+    private static void forEach(Object node, int shift, Consumer<Task> action) {
+        if (shift == 0) {
+            for (Task task : (Task[]) node) {
+                action.accept(task);
+            }
+            return;
+        }
+        for (Object child : ((Node) node).children) {
+            forEach(child, shift - BITS, action);
+        }
+    }
+
+    /**
+     * Obtains a vector with the task at the given index number replaced.
+     * @param i the index number, which must be in bounds.
+     * @param task the task to put there.
+     * @return the new vector.
+     */
+    TaskVector set(int i, Task task) {
+        return new TaskVector(set(root, shift, i, task), shift, size);
+    }
+
+    private static Object set(Object node, int shift, int i, Task task) {
+        if (shift == 0) {
+            Task[] leaf = ((Task[]) node).clone();
+            leaf[i] = task;
+            return leaf;
+        }
+        Node inner = (Node) node;
+        int child = inner.childOf(i, shift);
+        Object[] children = inner.children.clone();
+        children[child] = set(children[child], shift - BITS, i - inner.startOf(child, shift), task);
+        return new Node(children, inner.ends, inner.size);
+    }
+
+    /**
+     * Obtains a vector with the task added at the end.
+     * @param task the task to add.
+     * @return the new vector.
+     */
+    TaskVector append(Task task) {
+        return insert(size, task);
+    }
+
+    /**
+     * Obtains a vector with the task inserted at the given index number, shifting the tasks from there on by one.
+     * @param i the index number, from 0 to the size of the vector.
+     * @param task the task to insert.
+     * @return the new vector.
+     */
+    TaskVector insert(int i, Task task) {
+        Object[] inserted = insert(root, shift, i, task);
+        if (inserted.length == 1) {
+            return new TaskVector(inserted[0], shift, size + 1);
+        }
+        return new TaskVector(nodeOf(inserted, shift + BITS), shift + BITS, size + 1);
+    }
+
+    /**
+     * Inserts into the subtree, splitting it in two if it was full.
+     * @return the new subtree, or the two halves it was split into.
+     */
+    private static Object[] insert(Object node, int shift, int i, Task task) {
+        if (shift == 0) {
+            Task[] leaf = (Task[]) node;
+            Task[] grown = new Task[leaf.length + 1];
+            System.arraycopy(leaf, 0, grown, 0, i);
+            grown[i] = task;
+            System.arraycopy(leaf, i, grown, i + 1, leaf.length - i);
+            if (grown.length <= WIDTH) {
+                return new Object[] {grown};
+            }
+            // appending starts a new leaf, keeping the full one whole so the trie stays searchable by bits
+            int half = i == leaf.length ? WIDTH : grown.length / 2;
+            return new Object[] {Arrays.copyOfRange(grown, 0, half), Arrays.copyOfRange(grown, half, grown.length)};
+        }
+        Node inner = (Node) node;
+        int child = inner.childOf(i, shift);
+        Object[] replaced = insert(inner.children[child], shift - BITS, i - inner.startOf(child, shift), task);
+        Object[] children = new Object[inner.children.length + replaced.length - 1];
+        System.arraycopy(inner.children, 0, children, 0, child);
+        System.arraycopy(replaced, 0, children, child, replaced.length);
+        System.arraycopy(inner.children, child + 1, children, child + replaced.length,
+                inner.children.length - child - 1);
+        if (children.length <= WIDTH) {
+            return new Object[] {nodeOf(children, shift)};
+        }
+        int half = child + 1 == inner.children.length ? WIDTH : children.length / 2;
+        return new Object[] {nodeOf(Arrays.copyOfRange(children, 0, half), shift),
+                nodeOf(Arrays.copyOfRange(children, half, children.length), shift)};
+    }
+
+    /**
+     * Obtains a vector without the task at the given index number, shifting the tasks after it back by one.
+     * @param i the index number, which must be in bounds.
+     * @return the new vector.
+     */
+    TaskVector remove(int i) {
+        Object newRoot = remove(root, shift, i);
+        if (newRoot == null) {
+            return EMPTY;
+        }
+        int newShift = shift;
+        while (newShift > 0 && ((Node) newRoot).children.length == 1) {
+            newRoot = ((Node) newRoot).children[0];
+            newShift -= BITS;
+        }
+        return new TaskVector(newRoot, newShift, size - 1);
+    }
+
+    /**
+     * Removes from the subtree.
+     * @return the new subtree, or null if nothing is left of it.
+     */
+    private static Object remove(Object node, int shift, int i) {
+        if (shift == 0) {
+            Task[] leaf = (Task[]) node;
+            if (leaf.length == 1) {
+                return null;
+            }
+            Task[] shrunk = new Task[leaf.length - 1];
+            System.arraycopy(leaf, 0, shrunk, 0, i);
+            System.arraycopy(leaf, i + 1, shrunk, i, leaf.length - i - 1);
+            return shrunk;
+        }
+        Node inner = (Node) node;
+        int child = inner.childOf(i, shift);
+        Object replaced = remove(inner.children[child], shift - BITS, i - inner.startOf(child, shift));
+        Object[] children;
+        if (replaced == null) {
+            if (inner.children.length == 1) {
+                return null;
+            }
+            children = new Object[inner.children.length - 1];
+            System.arraycopy(inner.children, 0, children, 0, child);
+            System.arraycopy(inner.children, child + 1, children, child, children.length - child);
+        } else {
+            children = inner.children.clone();
+            children[child] = replaced;
+            if (shift == BITS) {
+                children = mergeSmallLeaf(children, child);
+            }
+        }
+        return nodeOf(children, shift);
+    }
+
+    /**
+     * Merges the leaf into a neighbour if deletes left it small and both fit in one leaf.
+     */
+    private static Object[] mergeSmallLeaf(Object[] leaves, int leaf) {
+        if (((Task[]) leaves[leaf]).length >= MIN_LEAF_SIZE) {
+            return leaves;
+        }
+        int first;
+        if (leaf + 1 < leaves.length && sizeOf(leaves[leaf]) + sizeOf(leaves[leaf + 1]) <= WIDTH) {
+            first = leaf;
+        } else if (leaf > 0 && sizeOf(leaves[leaf - 1]) + sizeOf(leaves[leaf]) <= WIDTH) {
+            first = leaf - 1;
+        } else {
+            return leaves;
+        }
+        Task[] left = (Task[]) leaves[first];
+        Task[] right = (Task[]) leaves[first + 1];
+        Task[] merged = Arrays.copyOf(left, left.length + right.length);
+        System.arraycopy(right, 0, merged, left.length, right.length);
+        Object[] merges = new Object[leaves.length - 1];
+        System.arraycopy(leaves, 0, merges, 0, first);
+        merges[first] = merged;
+        System.arraycopy(leaves, first + 2, merges, first + 1, merges.length - first - 1);
+        return merges;
+    }
+
+    /**
+     * Builds a node of the given children, with a table of where they end unless every child but the last is full.
+     */
+    private static Node nodeOf(Object[] children, int shift) {
+        int capacity = 1 << shift;
+        int size = 0;
+        boolean isFull = true;
+        for (int child = 0; child < children.length; child++) {
+            int childSize = sizeOf(children[child]);
+            size += childSize;
+            if ((child < children.length - 1 && childSize != capacity)
+                    || (children[child] instanceof Node && ((Node) children[child]).ends != null)) {
+                isFull = false;
+            }
+        }
+        if (isFull) {
+            return new Node(children, null, size);
+        }
+        int[] ends = new int[children.length];
+        int end = 0;
+        for (int child = 0; child < children.length; child++) {
+            end += sizeOf(children[child]);
+            ends[child] = end;
+        }
+        return new Node(children, ends, size);
+    }
+
+    private static int sizeOf(Object node) {
+        return node instanceof Node ? ((Node) node).size : ((Task[]) node).length;
+    }
+}
@@ -0,0 +1,118 @@
+package service;
+
+import model.Task;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Sorted index of deadlines and events by the minute they are due.
+ * Kept up to date by TaskList, so date range queries cost O(log n + k) instead of a scan.
+ */
+public class TimeIndex {
+
+    // Tasks due at each minute, keyed on minutes since the epoch.
+    private final NavigableMap<Long, List<Task>> tasksByMinute = new TreeMap<>();
+
+    private static long toEpochMinute(LocalDateTime dateTime) {
+        return Math.floorDiv(dateTime.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    /**
+     * Adds the task to the index if it has a due date.
+     * @param task the task that was added to the list.
+     */
+    public void add(Task task) {
+        LocalDateTime due = task.getDueDateTime();
+        if (due != null) {
+            tasksByMinute.computeIfAbsent(toEpochMinute(due), key -> new ArrayList<>(1)).add(task);
+        }
+    }
+
+    /**
+     * Removes the task from the index.
+     * @param task the task that was removed from the list.
+     */
+    public void remove(Task task) {
+        LocalDateTime due = task.getDueDateTime();
+        if (due == null) {
+            return;
+        }
+        long minute = toEpochMinute(due);
+        List<Task> tasks = tasksByMinute.get(minute);
+        if (tasks == null) {
+            return;
+        }
+        tasks.removeIf(other -> other == task);
+        if (tasks.isEmpty()) {
+            tasksByMinute.remove(minute);
+        }
+    }
+
+    /**
+     * Removes many tasks from the index at once, going through the tasks due at each minute once instead of once
+     * per task removed.
+     * @param removed the tasks that were removed from the list.
+     */
+    public void removeAll(Collection<Task> removed) {
+        Set<Task> tasks = Collections.newSetFromMap(new IdentityHashMap<>());
+        tasks.addAll(removed);
+        Set<Long> minutes = new HashSet<>();
+        for (Task task : removed) {
+            if (task.getDueDateTime() != null) {
+                minutes.add(toEpochMinute(task.getDueDateTime()));
+            }
+        }
+        for (long minute : minutes) {
+            List<Task> due = tasksByMinute.get(minute);
+            if (due == null) {
+                continue;
+            }
+            due.removeIf(tasks::contains);
+            if (due.isEmpty()) {
+                tasksByMinute.remove(minute);
+            }
+        }
+    }
+
+    /**
+     * Obtains the tasks due strictly before the given moment, earliest first.
+     * @param end the moment to stop at.
+     * @return the tasks due before it.
+     */
+    public List<Task> before(LocalDateTime end) {
+        return flatten(tasksByMinute.headMap(toEpochMinute(end), false).values());
+    }
+
+    /**
+     * Obtains the tasks due between the two moments, both included, earliest first.
+     * @param start the earliest moment.
+     * @param end the latest moment.
+     * @return the tasks due in between.
+     */
+    public List<Task> between(LocalDateTime start, LocalDateTime end) {
+        long startMinute = toEpochMinute(start);
+        long endMinute = toEpochMinute(end);
+        if (startMinute > endMinute) {
+            return new ArrayList<>();
+        }
+        return flatten(tasksByMinute.subMap(startMinute, true, endMinute, true).values());
+    }
+
+    private static List<Task> flatten(Collection<List<Task>> groups) {
+        List<Task> tasks = new ArrayList<>();
+        for (List<Task> group : groups) {
+            tasks.addAll(group);
+        }
+        return tasks;
+    }
+}
@@ -0,0 +1,195 @@
+package snoopy;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Splits a command into a {@link ParsedCommand} in a single pass over it, looking for the options of its kind of
+ * command in the order they are given, e.g. /from, /to then /tag for an event. Uses no regexes and, unlike
+ * Command.valueOf, throws nothing for unknown words.
+ */
+public class CommandParser {
+
+    private static final String BY = " /by ";
+    private static final String FROM = " /from ";
+    private static final String TO = " /to ";
+    private static final String TAG = " /tag ";
+    private static final String DONE_FILTER = "/done";
+    private static final String UNDONE_FILTER = "/undone";
+    private static final String TAG_FILTER = "/tag ";
+    private static final String[] TODO_OPTIONS = {TAG};
+    private static final String[] DEADLINE_OPTIONS = {BY, TAG};
+    private static final String[] EVENT_OPTIONS = {FROM, TO, TAG};
+    // Longest task number accepted, so it always fits in an int.
+    private static final int MAX_INDEX_DIGITS = 9;
+
+    private static final Map<String, Snoopy.Command> COMMANDS = new HashMap<>();
+
+    static {
+        for (Snoopy.Command command : Snoopy.Command.values()) {
+            if (command != Snoopy.Command.UNKNOWN) {
+                COMMANDS.put(command.name().toLowerCase(Locale.ROOT), command);
+            }
+        }
+    }
+
+    private CommandParser() {
+    }
+
+    /**
+     * Looks up the command a word stands for, ignoring case.
+     * @param word the first word of the user's input.
+     * @return the command, or UNKNOWN if there is none by that name.
+     */
+    public static Snoopy.Command commandOf(String word) {
+        Snoopy.Command command = COMMANDS.get(word);
+        if (command == null) {
+            command = COMMANDS.get(word.toLowerCase(Locale.ROOT));
+        }
+        return command == null ? Snoopy.Command.UNKNOWN : command;
+    }
+
+    /**
+     * Splits the user's input into its command and typed arguments.
+     * @param input the user's input.
+     * @return the parsed command.
+     */
+    public static ParsedCommand parse(String input) {
+        int space = input.indexOf(' ');
+        Snoopy.Command kind = commandOf(space < 0 ? input : input.substring(0, space));
+        String arguments = space < 0 ? "" : input.substring(space + 1);
+
+        switch (kind) {
+        case TODO:
+            return parseTask(kind, arguments, TODO_OPTIONS);
+        case DEADLINE:
+            return parseTask(kind, arguments, DEADLINE_OPTIONS);
+        case EVENT:
+            return parseTask(kind, arguments, EVENT_OPTIONS);
+        case MARK:
+        case UNMARK:
+        case DELETE:
+            String target = arguments.trim();
+            TaskSelection selection = parseSelection(target);
+            if (selection != null) {
+                return new ParsedCommand(kind, arguments, -1, 0, null, null, null, null, null, selection);
+            }
+            if (target.startsWith("#")) {
+                return new ParsedCommand(kind, arguments, -1, parseNumber(target, 1), null, null, null, null, null);
+            }
+            return new ParsedCommand(kind, arguments, parseNumber(target, 0) - 1, 0, null, null, null, null, null);
+        default:
+            return new ParsedCommand(kind, arguments, -1, 0, null, null, null, null, null);
+        }
+    }
+
+    /**
+     * Splits the arguments of a command adding a task at each of its options, in order. Once an option is missing,
+     * the rest of the arguments belong to the part before it and the later options are left out.
+     */
+    private static ParsedCommand parseTask(Snoopy.Command kind, String arguments, String[] options) {
+        String[] parts = new String[options.length + 1];
+        int start = 0;
+        int part = 0;
+        for (; part < options.length; part++) {
+            int at = arguments.indexOf(options[part], start);
+            if (at < 0) {
+                break;
+            }
+            parts[part] = arguments.substring(start, at);
+            start = at + options[part].length();
+        }
+        parts[part] = arguments.substring(start);
+
+        String description = parts[0];
+        String tag = nonEmpty(parts[options.length]);
+        switch (kind) {
+        case DEADLINE:
+            return new ParsedCommand(kind, arguments, -1, 0, description, nonEmpty(parts[1]), null, null, tag);
+        case EVENT:
+            return new ParsedCommand(kind, arguments, -1, 0, description, null, nonEmpty(parts[1]),
+                    nonEmpty(parts[2]), tag);
+        default:
+            return new ParsedCommand(kind, arguments, -1, 0, description, null, null, null, tag);
+        }
+    }
+
+    /**
+     * Reads the tasks picked by a bulk mark, unmark or delete: task numbers, ranges and ids separated by commas such
+     * as 1-5,7,#17, or a filter: /done, /undone or /tag {tags}.
+     * @return the selection, or null if the target is a single task number or id, or none of the above.
+     */
+    private static TaskSelection parseSelection(String target) {
+        if (target.equals(DONE_FILTER)) {
+            return TaskSelection.ofFilter(TaskSelection.Kind.DONE, null);
+        }
+        if (target.equals(UNDONE_FILTER)) {
+            return TaskSelection.ofFilter(TaskSelection.Kind.UNDONE, null);
+        }
+        if (target.startsWith(TAG_FILTER) && !target.substring(TAG_FILTER.length()).isBlank()) {
+            return TaskSelection.ofFilter(TaskSelection.Kind.TAG, target.substring(TAG_FILTER.length()).trim());
+        }
+        if (target.indexOf(',') < 0 && target.indexOf('-') < 0) {
+            return null;
+        }
+        List<int[]> ranges = new ArrayList<>();
+        List<Integer> ids = new ArrayList<>();
+        int start = 0;
+        while (start <= target.length()) {
+            int end = target.indexOf(',', start);
+            if (end < 0) {
+                end = target.length();
+            }
+            String part = target.substring(start, end).trim();
+            int dash = part.indexOf('-');
+            if (part.startsWith("#")) {
+                int id = parseNumber(part, 1);
+                if (id == 0) {
+                    return null;
+                }
+                ids.add(id);
+            } else if (dash < 0) {
+                int number = parseNumber(part, 0);
+                if (number == 0) {
+                    return null;
+                }
+                ranges.add(new int[] {number - 1, number - 1});
+            } else {
+                int first = parseNumber(part.substring(0, dash).trim(), 0);
+                int last = parseNumber(part.substring(dash + 1).trim(), 0);
+                if (first == 0 || last == 0) {
+                    return null;
+                }
+                ranges.add(new int[] {first - 1, last - 1});
+            }
+            start = end + 1;
+        }
+        return TaskSelection.ofNumbers(ranges, ids);
+    }
+
+    /**
+     * Reads the digits of a task number or id, starting at the given character of the trimmed arguments.
+     * @return the number, or 0 if there are no digits or anything else follows them.
+     */
+    private static int parseNumber(String target, int start) {
+        if (start == target.length() || target.length() - start > MAX_INDEX_DIGITS) {
+            return 0;
+        }
+        int number = 0;
+        for (int i = start; i < target.length(); i++) {
+            char c = target.charAt(i);
+            if (c < '0' || c > '9') {
+                return 0;
+            }
+            number = number * 10 + (c - '0');
+        }
+        return number;
+    }
+
+    private static String nonEmpty(String part) {
+        return part == null || part.isEmpty() ? null : part;
+    }
+}
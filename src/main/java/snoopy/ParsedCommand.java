@@ -0,0 +1,95 @@
+package snoopy;
+
+/**
+ * A command split into its typed parts by {@link CommandParser}. Parts the command does not have are null, the index
+ * is -1 unless the arguments are a task number, and the id is 0 unless they are a task id such as #17. The selection
+ * is null unless they pick several tasks, such as 1-500 or /done.
+ */
+public class ParsedCommand {
+
+    private final Snoopy.Command kind;
+    private final String arguments;
+    private final int index;
+    private final int id;
+    private final String description;
+    private final String by;
+    private final String from;
+    private final String to;
+    private final String tag;
+    private final TaskSelection selection;
+
+    ParsedCommand(Snoopy.Command kind, String arguments, int index, int id, String description, String by,
+            String from, String to, String tag) {
+        this(kind, arguments, index, id, description, by, from, to, tag, null);
+    }
+
+    ParsedCommand(Snoopy.Command kind, String arguments, int index, int id, String description, String by,
+            String from, String to, String tag, TaskSelection selection) {
+        this.kind = kind;
+        this.arguments = arguments;
+        this.index = index;
+        this.id = id;
+        this.description = description;
+        this.by = by;
+        this.from = from;
+        this.to = to;
+        this.tag = tag;
+        this.selection = selection;
+    }
+
+    public Snoopy.Command getKind() {
+        return kind;
+    }
+
+    /**
+     * Returns everything typed after the command word.
+     * @return the arguments, or an empty string if there are none.
+     */
+    public String getArguments() {
+        return arguments;
+    }
+
+    /**
+     * Returns the task number given to mark, unmark or delete, counting from 0.
+     * @return the index of the task, or -1 if the arguments are not a task number.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Returns the task id given to mark, unmark or delete, as in delete #17.
+     * @return the id of the task, or 0 if the arguments are not a task id.
+     */
+    public int getId() {
+        return id;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public String getBy() {
+        return by;
+    }
+
+    public String getFrom() {
+        return from;
+    }
+
+    public String getTo() {
+        return to;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    /**
+     * Returns the tasks picked by a bulk mark, unmark or delete, as in mark 1-500 or delete /done.
+     * @return the selection, or null if the arguments are not one.
+     */
+    public TaskSelection getSelection() {
+        return selection;
+    }
+}
@@ -1,5 +1,25 @@
 package snoopy;
 import exceptions.DukeException;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import metrics.CommandEvent;
+import metrics.LatencyHistogram;
+import metrics.Metrics;
+import server.SnoopyServer;
+import service.LoadReport;
 import service.Parser;
 import service.Storage;
 import service.TaskList;
@@ -7,34 +27,91 @@ import ui.UI;
 
 public class Snoopy {
 
-    private static TaskList taskList;
-    private static UI ui;
-    private static Storage storage;
+    // Whether the stored tasks are opened lazily at startup, see Storage#loadInfoLazily; on unless set to false.
+    private static final boolean IS_LAZY_LOAD =
+            Boolean.parseBoolean(System.getProperty("snoopy.storage.lazyLoad", "true"));
+
+    private final TaskList taskList;
+    private final UI ui;
+    private final Storage storage;
+    // Commands from different front ends take turns, so each one's journal record follows its change.
+    private final Object commandLock = new Object();
+    // Set by the first close, so closing again from another front end or a shutdown hook does nothing.
+    private final AtomicBoolean isClosed = new AtomicBoolean();
 
     /**
      * Returns the response to the user's input command.
+     * Safe to call from several threads; the commands run one at a time.
      * @param input user's input command
      * @return the response to the user's input
      */
     public String getResponse(String input) {
-        return processCommand(input, taskList, true);
+        synchronized (commandLock) {
+            return processCommand(input, taskList, true, storage);
+        }
+    }
+
+    public TaskList getTaskList() {
+        return taskList;
     }
 
     public enum Command {
-        TODO, DEADLINE, EVENT, DELETE, MARK, UNMARK, LIST, BYE, UNKNOWN, FIND;
+        TODO, DEADLINE, EVENT, DELETE, MARK, UNMARK, LIST, COUNT, DUE, OVERDUE, BYE, UNKNOWN, FIND, STATS, ARCHIVE,
+        UNDO, REDO;
 
         public static Command fromString(String maybeCommand) {
-            try {
-                return Command.valueOf(maybeCommand.toUpperCase());
-            } catch (Exception e) {
-                return UNKNOWN;
+            return CommandParser.commandOf(maybeCommand);
+        }
+    }
+
+    /**
+     * Runs one kind of command on the tasklist.
+     */
+    @FunctionalInterface
+    interface CommandHandler {
+        String handle(ParsedCommand command, TaskList todos, Boolean isVerbose, Storage storage);
+    }
+
+    // What each kind of command runs, looked up once per command instead of going through a switch.
+    private static final Map<Command, CommandHandler> HANDLERS = new EnumMap<>(Command.class);
+    // Latency of each kind of command, kept here so recording one needs no lookup by name.
+    private static final Map<Command, LatencyHistogram> LATENCIES = new EnumMap<>(Command.class);
+
+    static {
+        HANDLERS.put(Command.TODO, TaskManager::processTodo);
+        HANDLERS.put(Command.DEADLINE, TaskManager::processDeadline);
+        HANDLERS.put(Command.EVENT, TaskManager::processEvent);
+        HANDLERS.put(Command.DELETE, TaskManager::processDelete);
+        HANDLERS.put(Command.MARK, TaskManager::processMark);
+        HANDLERS.put(Command.UNMARK, TaskManager::processUnmark);
+        HANDLERS.put(Command.LIST, TaskManager::processList);
+        HANDLERS.put(Command.COUNT, (command, todos, isVerbose, storage) ->
+                TaskManager.processCount(command, todos, isVerbose));
+        HANDLERS.put(Command.DUE, TaskManager::processDue);
+        HANDLERS.put(Command.OVERDUE, (command, todos, isVerbose, storage) ->
+                TaskManager.processOverdue(command, todos, isVerbose));
+        HANDLERS.put(Command.FIND, (command, todos, isVerbose, storage) ->
+                TaskManager.processFind(command, todos, isVerbose));
+        HANDLERS.put(Command.BYE, (command, todos, isVerbose, storage) -> {
+            if (storage != null) {
+                storage.flush();
             }
+            return (new UI().formalities("farewell"));
+        });
+        HANDLERS.put(Command.ARCHIVE, TaskManager::processArchive);
+        HANDLERS.put(Command.UNDO, TaskManager::processUndo);
+        HANDLERS.put(Command.REDO, TaskManager::processRedo);
+        HANDLERS.put(Command.STATS, (command, todos, isVerbose, storage) -> Metrics.report());
+        HANDLERS.put(Command.UNKNOWN, (command, todos, isVerbose, storage) -> "Uh ah I don't understand ya ");
+        for (Command command : Command.values()) {
+            LATENCIES.put(command, Metrics.commandLatency(command.name().toLowerCase(Locale.ROOT)));
         }
     }
 
     /**
      * Performs the appropriate action based on the user's input of the task.
      * From adding of tasks which can be todos, deadlines and events, deleting and marking and unmarking them.
+     * Nothing is saved, as there is no storage to save to.
      *
      * @param userInput user's commands
      * @param todos the list of tasks that are currently present.
@@ -42,63 +119,66 @@ public class Snoopy {
      * @throws RuntimeException
      */
     public static String processCommand(String userInput, TaskList todos, Boolean isVerbose) throws RuntimeException {
-        String maybeCommand;
-        String arr[];
-        try {
-            arr = userInput.split(" ", 2); // String in Array format. Useful: https://www.geeksforgeeks.org/split-string-java-examples/
-            assert((arr.length) > 1);
-            maybeCommand = arr[0];
-        } catch (Exception e) {
-            maybeCommand = null;
+        return processCommand(userInput, todos, isVerbose, null);
+    }
+
+    /**
+     * Performs the appropriate action based on the user's input of the task, saving the changes to the storage.
+     *
+     * @param userInput user's commands
+     * @param todos the list of tasks that are currently present.
+     * @param isVerbose helps to ensure whether we are preloading (includes the need to save the entries)
+     * @param storage where the changes are saved, or null if they are not saved.
+     * @throws RuntimeException
+     */
+    public static String processCommand(String userInput, TaskList todos, Boolean isVerbose, Storage storage)
+            throws RuntimeException {
+        if (userInput == null) {
             return "null";
         }
-
-        Command command = Command.fromString(maybeCommand);
-        assert(command != null);
-
+        long start = System.nanoTime();
+        CommandEvent event = new CommandEvent();
+        event.begin();
+        ParsedCommand command = CommandParser.parse(userInput);
         try {
-            switch (command) {
-            case FIND:
-                return TaskManager.processFind(arr, userInput, todos, isVerbose);
-            case BYE:
-                return (ui.formalities("farewell"));
-            case LIST:
-                return TaskManager.processList(arr, userInput, todos, isVerbose);
-            case MARK:
-                return TaskManager.processMark(arr, userInput, todos, isVerbose, storage);
-            case UNMARK:
-                return TaskManager.processUnmark(arr, userInput, todos, isVerbose, storage);
-            case TODO:
-                return TaskManager.processTodo(arr, userInput, todos, isVerbose, storage);
-            case DEADLINE:
-                return TaskManager.processDeadline(arr, userInput, todos, isVerbose, storage);
-            case EVENT:
-                return TaskManager.processEvent(arr, userInput, todos, isVerbose, storage);
-            case DELETE:
-                return TaskManager.processDelete(arr, userInput, todos, isVerbose, storage);
-            default:
-                return "Uh ah I don't understand ya ";
-            }
+            return HANDLERS.get(command.getKind()).handle(command, todos, isVerbose, storage);
         } catch (Exception e) {
             return e.getMessage();
+        } finally {
+            LATENCIES.get(command.getKind()).record(System.nanoTime() - start);
+            event.finish(command.getKind().name());
         }
-
     }
 
     /**
      * Constructor of Snoopy
      */
     public Snoopy() {
-        ui = new UI();
-        taskList = new TaskList();
-        storage = new Storage();
+        this(new Storage());
+    }
+
+    /**
+     * Creates a Snoopy keeping its tasks in the given file, so several lists can be open in one JVM.
+     * @param filePath path of the data file.
+     */
+    public Snoopy(String filePath) {
+        this(new Storage(filePath));
+    }
+
+    private Snoopy(Storage storage) {
+        this.ui = new UI();
+        this.taskList = new TaskList();
+        this.storage = storage;
+        Metrics.startPeriodicDump();
 
         //Load existing information
         try {
-            storage.loadInfo(taskList);
+            LoadReport report = IS_LAZY_LOAD ? storage.loadInfoLazily(taskList) : storage.loadInfo(taskList);
+            if (!report.isClean()) {
+                System.err.println(report);
+            }
         } catch (Exception e) {
-            e.getMessage();
-            taskList = null;
+            System.err.println("Unable to load tasks: " + e.getMessage());
         }
     }
 
@@ -107,22 +187,139 @@ public class Snoopy {
      */
     public void run() {
 
-        ui.formalities("greet");
+        System.out.println(ui.formalities("greet"));
 
-        while (true) {
-            //Parsing user input.
-           String command = new Parser().parse();
-           assert(command != null);
+        Parser parser = new Parser();
+        String command;
+        while ((command = parser.parse()) != null) {
             //Process user command
+            System.out.println(getResponse(command));
+            if (isBye(command)) {
+                break;
+            }
+        }
+        close();
+    }
+
+    /**
+     * Runs a command script, writing every reply to the output.
+     * The script is read ahead on a background thread, and the tasks are only saved every flushEvery commands and
+     * once at the end, instead of after every command.
+     * @param parser where the commands are read from, closed once the script ends or bye stops it.
+     * @param output where the replies are written to.
+     * @param flushEvery number of commands between saves, or 0 to only save at the end.
+     * @throws IOException if the replies cannot be written.
+     */
+    public void runBatch(Parser parser, Writer output, int flushEvery) throws IOException {
+        storage.startBatch();
+        parser.readAhead();
+        int sinceFlush = 0;
+        try {
+            String command;
+            while ((command = parser.parse()) != null) {
+                if (command.isBlank()) {
+                    continue;
+                }
+                output.write(getResponse(command));
+                output.write('\n');
+                if (isBye(command)) {
+                    break;
+                }
+                if (flushEvery > 0 && ++sinceFlush >= flushEvery) {
+                    storage.checkpoint(taskList);
+                    sinceFlush = 0;
+                }
+            }
+        } finally {
+            parser.close();
+            storage.finishBatch(taskList);
+            close();
+            output.flush();
+        }
+    }
+
+    /**
+     * Serves the tasks over HTTP until the process is stopped.
+     * @param port the port to listen on.
+     * @throws IOException if the port cannot be bound.
+     */
+    private static void serve(int port) throws IOException {
+        // Without TCP_NODELAY, a reply written as headers then body waits out the client's delayed ACK (~40 ms)
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        Snoopy snoopy = new Snoopy();
+        SnoopyServer server = new SnoopyServer(snoopy, port);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            snoopy.close();
+        }, "snoopy-server-shutdown"));
+        server.start();
+        System.out.println(" Serving tasks on http://127.0.0.1:" + server.getPort() + "/api");
+    }
+
+    /**
+     * Archives the tasks finished with long enough ago, saves everything still waiting to be written, and stops
+     * saving in the background. Only the first call does anything.
+     */
+    public void close() {
+        if (!isClosed.compareAndSet(false, true)) {
+            return;
+        }
+        synchronized (commandLock) {
             try {
-                processCommand(command, taskList, true);
-            } catch (Exception e) {
-                throw new DukeException(e.getMessage());
+                storage.autoArchive(taskList);
+            } catch (RuntimeException e) {
+                System.err.println("Unable to archive tasks: " + e.getMessage());
             }
         }
+        storage.close();
+    }
+
+    private static boolean isBye(String command) {
+        return command.trim().equalsIgnoreCase("bye");
     }
 
-    public static void main(String[] args) {
-        new Snoopy().run();
+    /**
+     * Runs Snoopy on the command line. With --batch {file} (or - for standard input) the commands are read from a
+     * script instead, optionally saving every N commands with --flush-every N. With --serve [port] the tasks are
+     * served over HTTP instead, see {@link SnoopyServer}. With --convert {from} {to} a data file is converted between
+     * the text and binary formats.
+     * @param args the command line arguments.
+     */
+    public static void main(String[] args) throws IOException {
+        List<String> arguments = Arrays.asList(args);
+        int serveAt = arguments.indexOf("--serve");
+        if (serveAt >= 0) {
+            int port = serveAt + 1 < args.length ? Integer.parseInt(args[serveAt + 1]) : SnoopyServer.DEFAULT_PORT;
+            serve(port);
+            return;
+        }
+
+        int convertAt = arguments.indexOf("--convert");
+        if (convertAt >= 0 && convertAt + 2 < args.length) {
+            System.out.println(Storage.convert(args[convertAt + 1], args[convertAt + 2]));
+            return;
+        }
+
+        int batchAt = arguments.indexOf("--batch");
+        if (batchAt < 0) {
+            new Snoopy().run();
+            return;
+        }
+        if (batchAt + 1 >= args.length) {
+            System.err.println("Usage: --batch {file} [--flush-every N], or --batch - to read the commands from"
+                    + " standard input");
+            System.exit(2);
+        }
+
+        int flushAt = arguments.indexOf("--flush-every");
+        int flushEvery = flushAt >= 0 && flushAt + 1 < args.length ? Integer.parseInt(args[flushAt + 1]) : 0;
+        String script = args[batchAt + 1];
+        Reader input = script.equals("-")
+                ? new InputStreamReader(System.in, StandardCharsets.UTF_8)
+                : Files.newBufferedReader(Path.of(script), StandardCharsets.UTF_8);
+        Writer output = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+        new Snoopy().runBatch(new Parser(input), output, flushEvery);
     }
 }
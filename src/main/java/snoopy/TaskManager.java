@@ -7,120 +7,95 @@ import model.Deadline;
 import model.Event;
 import model.Task;
 import model.Todo;
+import service.SearchIndex;
 import service.TaskList;
 import service.Storage;
 
-import java.util.Arrays;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
 
 public class TaskManager {
 
+    // Most tasks the list command shows at once.
+    static final int LIST_PAGE_SIZE = 100;
+    private static final int LIST_FOOTER_LENGTH = 80;
+    // Most tasks a bulk mark, unmark or delete shows, beyond which it only gives the count.
+    private static final int BULK_LISTED_TASKS = 10;
+    // Most tasks find shows, the best matching ones.
+    private static final int FOUND_LISTED_TASKS = 20;
 
-    /**
-     * Checks if the delete command is valid
-     * @param inputArguments the array of input arguments
-     * @return true if the delete command is valid, false otherwise
-     */
-    public static boolean isValidDeleteCommand(String[] inputArguments) {
-        return inputArguments.length == 2;
-    }
 
-    public static boolean isValidDeadlineCommand(String[] inputArguments) {
-        try {
-            String arguments[] = inputArguments[1].split(" /by ");
-            String description = arguments[0];
-            String date = arguments[1];
-        } catch (Exception e) {
-            return false;
-        }
-        return true;
-    }
+    private static final String BAD_DATE_MESSAGE =
+            "Bad date! Please use the format YYYY-MM-DD or YYYY/MM/DD or DD-MM-YYYY or DD/MM/YYYY e.g. 2024-12-14";
 
     /**
-     * Checks if the event command is valid
-     * @param inputArguments the array of input arguments
-     * @return true if the event command is valid, false otherwise
+     * Handles the delete command and removes the task from the list
+     * @param command the parsed command
+     * @param todos the list of tasks
+     * @param isVerbose the verbosity of the output
+     * @param storage the storage object
+     * @return the string output
      */
-    private static boolean isValidEventCommand(String[] inputArguments) {
-        try {
-            // attempt extraction of parameters
-            String getDesc[] = inputArguments[1].split(" /from ");
-            String desc = getDesc[0];
-            String getDates[] = getDesc[1].split(" /to ");
-            String getDateAndTag[] = getDates[1].split(" /tag ");
-            String from = getDates[0];
-            String to = getDateAndTag[0];
-        } catch (Exception e) {
-            return false;
+    public static String processDelete(ParsedCommand command, TaskList todos, Boolean isVerbose, Storage storage) {
+        if (command.getSelection() != null) {
+            return processBulkDelete(command.getSelection(), todos, isVerbose, storage);
+        }
+        int index = requireTaskIndex(command, todos, "delete");
+        Task task = todos.remove(index);
+        if (isSaved(isVerbose, storage)) {
+            storage.recordDelete(todos, index);
         }
-        return true;
+        return ("Okay! I've fed this task to Woodstock, bye bye!:" + "\n" + task.toString() + "\n" + "Now you have " + todos.size() + " tasks in the list.");
     }
 
     /**
-     * Handles the delete command and removes the task from the list
-     * @param inputArguments the array of input arguments
-     * @param UserInput the user input
+     * Handles a delete of several tasks at once, e.g. delete 3,7,9 or delete /done, as one change with one write
+     * @param selection the tasks to delete
      * @param todos the list of tasks
      * @param isVerbose the verbosity of the output
      * @param storage the storage object
      * @return the string output
      */
-    public static String processDelete(String[] inputArguments, String UserInput, TaskList todos, Boolean isVerbose, Storage storage) {
-        if (!isValidDeleteCommand(inputArguments)) {
-            return ("inputArguments:" + Arrays.toString(inputArguments) + "\n Nuh uh! Which task to delete? \nMake sure to add the task number!");
-        }
-        Integer i = Integer.valueOf(inputArguments[1]);
-        Task task;
-        try {
-            task = todos.get(i - 1);
-            todos.remove(i - 1);
-        } catch (Exception e) {
-           Exception e1 = new TaskNotExistException(Integer.toString(i));
-           return e1.getMessage();
+    private static String processBulkDelete(TaskSelection selection, TaskList todos, Boolean isVerbose,
+            Storage storage) {
+        BitSet positions = selection.positionsIn(todos);
+        if (positions.isEmpty()) {
+            return (" No tasks match, nothing to delete!");
         }
-        if (isVerbose) {
-            storage.updateRecords(todos);
+        List<Task> removed = todos.removeAll(positions);
+        if (isSaved(isVerbose, storage)) {
+            storage.recordDeletes(todos, positions);
         }
-        return ("Okay! I've fed this task to Woodstock, bye bye!:" + "\n" + task.toString() + "\n" + "Now you have " + todos.size() + " tasks in the list.");
+        return (listChanged("Okay! I've fed " + removed.size() + " tasks to Woodstock, bye bye!", removed)
+                + "Now you have " + todos.size() + " tasks in the list.");
     }
 
     /**
      * Handles the event command and interpreting details like dates and tags
-     * @param inputArguments the inputArgumentsay of strings
-     * @param UserInput the user input
+     * @param command the parsed command
      * @param todos the list of tasks
      * @param isVerbose the verbosity of the output
      * @param storage the storage object
      * @return the string output
      */
-    public static String processEvent(String[] inputArguments, String UserInput, TaskList todos, Boolean isVerbose, Storage storage) {
-        if (!isValidEventCommand(inputArguments)) {
+    public static String processEvent(ParsedCommand command, TaskList todos, Boolean isVerbose, Storage storage) {
+        if (command.getFrom() == null || command.getTo() == null) {
             throw new DukeException(" Insufficient parameters! \nMake sure to add a from and to date after the description with /from and /to too!");
         }
-        // extraction of parameters
-        String getDesc[] = inputArguments[1].split(" /from ");
-        String desc = getDesc[0];
-        String getDates[] = getDesc[1].split(" /to ");
-        String getDateAndTag[] = getDates[1].split(" /tag ");
-        String from = getDates[0];
-        String to = getDateAndTag[0];
 
-        String tag;
         Event event;
         try {
-            if (getDateAndTag.length > 1) {
-                tag = getDateAndTag[1];
-                event = new Event(desc, from, to, tag);
-                todos.add(event);
-            } else {
-                event = new Event(desc, from, to);
-                todos.add(event);
-            }
+            event = new Event(command.getDescription(), command.getFrom(), command.getTo(), command.getTag());
         } catch (Exception e) {
             return e.getMessage();
         }
+        todos.add(event);
 
-        if (isVerbose) {
-            storage.updateRecords(todos);
+        if (isSaved(isVerbose, storage)) {
+            storage.recordAdd(todos);
         }
 
         return ("Wow hardworker! Added: " + "\n" + event.toString() + "\n" + ("Now you have " + todos.size() + " tasks in the list."));
@@ -128,136 +103,519 @@ public class TaskManager {
 
     /**
      * Processes the deadline command
-     * @param inputArguments the inputArgumentsay of strings
-     * @param UserInput the user input
+     * @param command the parsed command
      * @param todos the list of tasks
      * @param isVerbose the verbosity of the output
      * @param storage the storage object
      * @return the string output
      */
-    public static String processDeadline(String[] inputArguments, String UserInput, TaskList todos, Boolean isVerbose, Storage storage) {
-        if (!isValidDeadlineCommand(inputArguments)) {
+    public static String processDeadline(ParsedCommand command, TaskList todos, Boolean isVerbose, Storage storage) {
+        if (command.getBy() == null) {
             throw new DukeException(" Nuh uh! Insufificent parameters!\nMake sure to add a deadline after the description with /by too!");
         }
-        String arguments[] = inputArguments[1].split(" /by ");
-        String description = arguments[0];
-        String byAndTag[] = arguments[1].split(" /tag ");
 
         Deadline deadline;
         try {
-            String by = byAndTag[0];
-            if (byAndTag.length > 1) {
-                String tag = byAndTag[1];
-                deadline = new Deadline(description, by, tag);
-            } else {
-                deadline = new Deadline(description, by);
-            }
+            deadline = new Deadline(command.getDescription(), command.getBy(), command.getTag());
         } catch (Exception e) {
-            return "Bad date! Please use the format YYYY-MM-DD or YYYY/MM/DD or DD-MM-YYYY or DD/MM/YYYY e.g. 2024-12-14";
+            return BAD_DATE_MESSAGE;
         }
         todos.add(deadline);
-        if (isVerbose) {
-            storage.updateRecords(todos);
+        if (isSaved(isVerbose, storage)) {
+            storage.recordAdd(todos);
         }
         return ("Ah deadlines. Added this task:" + "\n" + deadline.toString() + "\n" + ("Now you have " + todos.size() + " tasks in the list."));
     }
 
     /**
      * Processes the todo command
-     * @param inputArguments the inputArgumentsay of strings
-     * @param UserInput the user input
+     * @param command the parsed command
      * @param todos the list of tasks
      * @param isVerbose the verbosity of the output
      * @param storage the storage object
      * @return the string output
      */
-    public static String processTodo(String[] inputArguments, String UserInput, TaskList todos, Boolean isVerbose, Storage storage) {
-        if (inputArguments.length == 1) {
+    public static String processTodo(ParsedCommand command, TaskList todos, Boolean isVerbose, Storage storage) {
+        if (command.getDescription().isBlank()) {
             throw new DukeException(" Nuh uh! The description of a todo cannot be empty.");
         }
-        String arguments[] = inputArguments[1].split(" /tag ");
-        Todo todo;
-        if (arguments.length > 1) { // if there are tags
-            todo = new Todo(arguments[0], arguments[1]);
-        } else {
-            todo = new Todo(arguments[0]);
-        }
+        Todo todo = new Todo(command.getDescription(), command.getTag());
         todos.add(todo);
-        if (isVerbose) {
-            storage.updateRecords(todos);
+        if (isSaved(isVerbose, storage)) {
+            storage.recordAdd(todos);
         }
         return ("Ooo happening! Added this task:\n" + todo.toString() + "\n" + "Now you have " + todos.size() + " tasks in the list.");
     }
 
     /**
      * Processes the mark command
-     * @param inputArguments the inputArgumentsay of strings
-     * @param UserInput the user input
+     * @param command the parsed command
      * @param todos the list of tasks
      * @param isVerbose the verbosity of the output
      * @param storage the storage object
      * @return the string output
      */
-    public static String processMark(String[] inputArguments, String UserInput, TaskList todos, Boolean isVerbose, Storage storage) {
+    public static String processMark(ParsedCommand command, TaskList todos, Boolean isVerbose, Storage storage) {
+        if (command.getSelection() != null) {
+            return processBulkMark(command.getSelection(), todos, isVerbose, storage, true);
+        }
+        int index = requireTaskIndex(command, todos, "mark");
         // mark task as done
-        Integer index = Integer.valueOf(inputArguments[1]) - 1;
-        Task currTask = todos.get(index);
-        currTask.markAsDone();
-        if (isVerbose) {
-            storage.updateRecords(todos);
+        Task currTask = todos.markAsDone(index);
+        if (isSaved(isVerbose, storage)) {
+            storage.recordMark(todos, index);
         }
         return (" Great job! I've marked this as done:\n" + " " + currTask.toString());
     }
 
     /**
-     * Processes the list command
-     * @param inputArguments the arguments of strings
-     * @param UserInput the user input
+     * Handles a mark or unmark of several tasks at once, e.g. mark 1-500 or unmark /tag sprint12, as one change with
+     * one write
+     * @param selection the tasks to mark or unmark
      * @param todos the list of tasks
      * @param isVerbose the verbosity of the output
+     * @param storage the storage object
+     * @param isDone whether to mark the tasks as done
+     * @return the string output
+     */
+    private static String processBulkMark(TaskSelection selection, TaskList todos, Boolean isVerbose,
+            Storage storage, boolean isDone) {
+        BitSet positions = selection.positionsIn(todos);
+        if (positions.isEmpty()) {
+            return (" No tasks match, nothing to " + (isDone ? "mark!" : "unmark!"));
+        }
+        List<Task> changed = isDone ? todos.markAllAsDone(positions) : todos.markAllAsUndone(positions);
+        if (isSaved(isVerbose, storage) && !changed.isEmpty()) {
+            storage.recordMarks(todos, positions, isDone);
+        }
+        int unchanged = positions.cardinality() - changed.size();
+        String header = isDone
+                ? " Great job! I've marked " + changed.size() + " tasks as done"
+                : " OK, I've marked " + changed.size() + " tasks as not done yet";
+        if (unchanged > 0) {
+            header += ", " + unchanged + (isDone ? " already were" : " were not done anyway");
+        }
+        return listChanged(header + "!", changed);
+    }
+
+    /**
+     * Tells whether a change is saved: only when the command is not preloading and there is a storage to save to,
+     * e.g. not for the benchmarks, which run commands without one.
+     */
+    private static boolean isSaved(Boolean isVerbose, Storage storage) {
+        return isVerbose && storage != null;
+    }
+
+    /**
+     * Shows the summary of a bulk command, followed by the tasks it changed if there are only a few
+     * @param header the summary
+     * @param tasks the tasks changed
      * @return the string output
      */
-    public static String processList(String[] inputArguments, String UserInput, TaskList todos, Boolean isVerbose) {
-        String tasksString = "";
-        for (int i = 0; i < todos.size(); i++) {
-            Task currTask = todos.get(i);
-            if (isVerbose) {
-                tasksString += ((i + 1) + ". " + currTask.toString() + "\n");
+    private static String listChanged(String header, List<Task> tasks) {
+        if (tasks.size() > BULK_LISTED_TASKS) {
+            return header + "\n";
+        }
+        return listTasks(header + "\n", tasks);
+    }
+
+    /**
+     * Obtains the index of the task a command refers to, by its number in the list or its id e.g. #17, making sure it
+     * exists
+     * @param command the parsed command
+     * @param todos the list of tasks
+     * @param action what the command does, for the error message
+     * @return the index of the task
+     */
+    private static int requireTaskIndex(ParsedCommand command, TaskList todos, String action) {
+        if (command.getId() > 0) {
+            int index = todos.indexOfId(command.getId());
+            if (index < 0) {
+                throw new TaskNotExistException("#" + command.getId());
             }
+            return index;
+        }
+        int index = command.getIndex();
+        if (index < 0) {
+            throw new DukeException(" Nuh uh! Which task to " + action + "? \nMake sure to add the task number, "
+                    + "e.g. 2, #17, 1-5, 3,7,9, /done or /tag work!");
+        }
+        if (index >= todos.size()) {
+            throw new TaskNotExistException(Integer.toString(index + 1));
         }
-        return (" Here are the tasks in your list:\n" + tasksString);
+        return index;
     }
 
-    public static String processUnmark(String[] inputArguments, String UserInput, TaskList todos, Boolean isVerbose, Storage storage) {
-        Integer index = Integer.valueOf(inputArguments[1]) - 1;
-        Task currTask = todos.get(index);
-        // mark task as undone
-        index = Integer.valueOf(inputArguments[1]) - 1;
-        currTask = todos.get(index);
-        currTask.markAsUndone();
+    /**
+     * Processes the list command. Long lists are shown a page at a time: list {page}, list /limit N /offset M, and
+     * list next to continue where the last page stopped. A tag query e.g. list /tag work or home only lists the tasks
+     * matching it. list /all lists every task, followed by the archived ones.
+     * @param command the parsed command
+     * @param todos the list of tasks
+     * @param isVerbose the verbosity of the output
+     * @param storage the storage object, holding the archived tasks
+     * @return the string output
+     */
+    public static String processList(ParsedCommand command, TaskList todos, Boolean isVerbose, Storage storage) {
+        String tagQuery = getTagQuery(command);
+        if (tagQuery != null) {
+            BitSet tagged = todos.findByTags(tagQuery);
+            if (tagged.isEmpty()) {
+                return (" Sorry no tasks found with those tags :<");
+            }
+            StringBuilder tasksString = new StringBuilder(" Here are the tasks with those tags:\n");
+            for (int i = tagged.nextSetBit(0); i >= 0; i = tagged.nextSetBit(i + 1)) {
+                tasksString.append(i + 1).append(". ").append(todos.get(i).toString()).append("\n");
+            }
+            return tasksString.toString();
+        }
 
-        if (isVerbose) {
-            storage.updateRecords(todos);
+        String header = " Here are the tasks in your list:\n";
+        if (!isVerbose) {
+            return header;
         }
-        return (" OK, I've marked this task as not done yet:\n" + " " + currTask.toString());
+        String arguments = command.getArguments().trim();
+        if (arguments.equals("/all")) {
+            return listAll(todos, storage);
+        }
+        int offset = 0;
+        int limit = LIST_PAGE_SIZE;
+        try {
+            if (arguments.equals("next")) {
+                offset = todos.getListCursor();
+            } else if (arguments.startsWith("/")) {
+                limit = getListOption(arguments, "/limit", LIST_PAGE_SIZE);
+                offset = getListOption(arguments, "/offset", 0);
+            } else if (!arguments.isEmpty()) {
+                offset = (Integer.parseInt(arguments) - 1) * LIST_PAGE_SIZE;
+            }
+        } catch (NumberFormatException e) {
+            offset = -1;
+        }
+        if (offset < 0 || limit < 1) {
+            throw new DukeException(" Nuh uh! Use list, list {page}, list next or list /limit {count} /offset {start}");
+        }
+        if (offset > 0 && offset >= todos.size()) {
+            return (" That's the end of the list!");
+        }
+        return listPage(header, todos, offset, limit);
     }
-    public static String processFind(String[] inputArguments, String UserInput, TaskList todos, Boolean isVerbose) {
-        TaskList matchingTasks = new TaskList();
-        String query = inputArguments[1];
-        String matchingTasksString = "";
-        for (int i = 0; i < todos.size(); i++) {
-            Task currTask = todos.get(i);
-            if (currTask.toString().contains(query)) {
-                matchingTasks.add(currTask);
+
+    /**
+     * Obtains the number following an option such as /limit in the arguments of the list command
+     * @param arguments the arguments of the list command
+     * @param option the option to look for
+     * @param defaultValue the value to use if the option is not given
+     * @return the number given for the option
+     */
+    private static int getListOption(String arguments, String option, int defaultValue) {
+        String words[] = arguments.split(" ");
+        for (int i = 0; i < words.length - 1; i++) {
+            if (words[i].equals(option)) {
+                return Integer.parseInt(words[i + 1]);
             }
         }
-        if (matchingTasks.size() > 0) {
-            for (int i = 0; i < matchingTasks.size(); i++) {
-                matchingTasksString += ((i + 1) + ". " + matchingTasks.get(i).toString() + "\n");
+        return defaultValue;
+    }
+
+    /**
+     * Builds one page of the list in a buffer sized up front, remembering where it stopped for list next
+     * @param header the line shown above the tasks
+     * @param todos the list of tasks
+     * @param offset index of the first task shown
+     * @param limit most tasks shown
+     * @return the string output
+     */
+    private static String listPage(String header, TaskList todos, int offset, int limit) {
+        // one snapshot, so the page stays consistent while other threads change the list
+        TaskList.Snapshot tasks = todos.snapshot();
+        int end = (int) Math.min(tasks.size(), (long) offset + limit);
+        int length = header.length() + LIST_FOOTER_LENGTH;
+        for (int i = offset; i < end; i++) {
+            // number, ". " and the line break take at most 12 characters
+            length += tasks.get(i).toString().length() + 12;
+        }
+
+        StringBuilder tasksString = new StringBuilder(length).append(header);
+        for (int i = offset; i < end; i++) {
+            tasksString.append(i + 1).append(". ").append(tasks.get(i).toString()).append('\n');
+        }
+        if (end < tasks.size()) {
+            tasksString.append(" Showing ").append(offset + 1).append('-').append(end).append(" of ")
+                    .append(tasks.size()).append(". Type list next for more.\n");
+        }
+        todos.setListCursor(end);
+        return tasksString.toString();
+    }
+
+    /**
+     * Lists every task in the list, then every archived task with its id, reading the whole archive
+     * @param todos the list of tasks
+     * @param storage the storage object, or null if nothing is archived
+     * @return the string output
+     */
+    private static String listAll(TaskList todos, Storage storage) {
+        TaskList.Snapshot tasks = todos.snapshot();
+        StringBuilder tasksString = new StringBuilder(" Here are all your tasks, archived ones included:\n");
+        for (int i = 0; i < tasks.size(); i++) {
+            tasksString.append(i + 1).append(". ").append(tasks.get(i).toString()).append('\n');
+        }
+        List<Task> archived = storage == null ? List.of() : storage.getArchived();
+        if (!archived.isEmpty()) {
+            tasksString.append(listTasks(" Archived:\n", archived));
+        }
+        return tasksString.toString();
+    }
+
+    /**
+     * Processes the archive command, moving finished tasks (done ones and events that are over) out of the list into
+     * the archive, or with archive /before {datetime} only the deadlines and events due before then
+     * @param command the parsed command
+     * @param todos the list of tasks
+     * @param isVerbose the verbosity of the output
+     * @param storage the storage object
+     * @return the string output
+     */
+    public static String processArchive(ParsedCommand command, TaskList todos, Boolean isVerbose, Storage storage) {
+        if (storage == null) {
+            throw new DukeException(" Nuh uh! There is nowhere to keep archived tasks.");
+        }
+        String arguments = command.getArguments().trim();
+        LocalDateTime before = null;
+        if (arguments.startsWith("/before ")) {
+            try {
+                before = Task.parseDateTime(arguments.substring("/before ".length()).trim());
+            } catch (DateTimeParseException e) {
+                return BAD_DATE_MESSAGE;
             }
-        } else {
+        } else if (!arguments.isEmpty()) {
+            throw new DukeException(" Nuh uh! Use archive or archive /before {datetime}");
+        }
+        List<Task> archived = storage.archiveFinished(todos, before);
+        if (archived.isEmpty()) {
+            return (" Nothing to archive, everything is still going on!");
+        }
+        return (" Tucked " + archived.size() + " finished tasks away in the archive, see them with list /all.\n"
+                + " Now you have " + todos.size() + " tasks in the list.");
+    }
+
+    /**
+     * Processes the undo command, putting the list back the way it was before the latest change not undone yet
+     * @param command the parsed command
+     * @param todos the list of tasks
+     * @param isVerbose the verbosity of the output
+     * @param storage the storage object
+     * @return the string output
+     */
+    public static String processUndo(ParsedCommand command, TaskList todos, Boolean isVerbose, Storage storage) {
+        TaskList.Change change = todos.undo();
+        if (change == null) {
+            return (" Nothing to undo, this is as far back as I remember!");
+        }
+        if (isSaved(isVerbose, storage)) {
+            storage.recordRestore(todos, change);
+        }
+        return describeChange(" Undone!", change, todos);
+    }
+
+    /**
+     * Processes the redo command, doing the latest change undone again
+     * @param command the parsed command
+     * @param todos the list of tasks
+     * @param isVerbose the verbosity of the output
+     * @param storage the storage object
+     * @return the string output
+     */
+    public static String processRedo(ParsedCommand command, TaskList todos, Boolean isVerbose, Storage storage) {
+        TaskList.Change change = todos.redo();
+        if (change == null) {
+            return (" Nothing to redo, you're all caught up!");
+        }
+        if (isSaved(isVerbose, storage)) {
+            storage.recordRestore(todos, change);
+        }
+        return describeChange(" Redone!", change, todos);
+    }
+
+    /**
+     * Describes what undoing or redoing a change did to the list
+     * @param header the line shown first
+     * @param change what was undone or redone
+     * @param todos the list of tasks
+     * @return the string output
+     */
+    private static String describeChange(String header, TaskList.Change change, TaskList todos) {
+        List<Task> removed = change.getRemoved();
+        List<Task> added = change.getAdded();
+        if (removed.size() == 1 && added.size() == 1 && removed.get(0).getId() == added.get(0).getId()) {
+            return (header + " This task is back to:\n " + added.get(0).toString());
+        }
+        StringBuilder reply = new StringBuilder(header).append("\n");
+        if (!added.isEmpty()) {
+            reply.append(listTasks(" Back in the list:\n", added));
+        }
+        if (!removed.isEmpty()) {
+            reply.append(listTasks(" Out of the list:\n", removed));
+        }
+        return reply.append("Now you have ").append(todos.size()).append(" tasks in the list.").toString();
+    }
+
+    /**
+     * Processes the count command, optionally only counting the tasks matching a tag query e.g. count /tag work
+     * @param command the parsed command
+     * @param todos the list of tasks
+     * @param isVerbose the verbosity of the output
+     * @return the string output
+     */
+    public static String processCount(ParsedCommand command, TaskList todos, Boolean isVerbose) {
+        String tagQuery = getTagQuery(command);
+        if (tagQuery == null) {
+            return (" You have " + todos.size() + " tasks in the list.");
+        }
+        return (" You have " + todos.countByTags(tagQuery) + " tasks tagged " + tagQuery + ".");
+    }
+
+    /**
+     * Obtains the tag query following /tag in the arguments, if there is one
+     * @param command the parsed command
+     * @return the tag query, or null if no tags were given
+     */
+    private static String getTagQuery(ParsedCommand command) {
+        String arguments = command.getArguments().trim();
+        if (!arguments.startsWith("/tag ")) {
+            return null;
+        }
+        return arguments.substring("/tag ".length()).trim();
+    }
+
+    /**
+     * Processes the unmark command
+     * @param command the parsed command
+     * @param todos the list of tasks
+     * @param isVerbose the verbosity of the output
+     * @param storage the storage object
+     * @return the string output
+     */
+    public static String processUnmark(ParsedCommand command, TaskList todos, Boolean isVerbose, Storage storage) {
+        if (command.getSelection() != null) {
+            return processBulkMark(command.getSelection(), todos, isVerbose, storage, false);
+        }
+        int index = requireTaskIndex(command, todos, "unmark");
+        // mark task as undone
+        Task currTask = todos.markAsUndone(index);
+
+        if (isSaved(isVerbose, storage)) {
+            storage.recordUnmark(todos, index);
+        }
+        return (" OK, I've marked this task as not done yet:\n" + " " + currTask.toString());
+    }
+    /**
+     * Processes the find command, looking the words up in the tasklist's search index and showing the best matches
+     * @param command the parsed command
+     * @param todos the list of tasks
+     * @param isVerbose the verbosity of the output
+     * @return the string output
+     */
+    public static String processFind(ParsedCommand command, TaskList todos, Boolean isVerbose) {
+        String query = command.getArguments();
+        if (query.isBlank()) {
+            throw new DukeException(" Nuh uh! What should I find? Add some words after find.");
+        }
+        SearchIndex.Result matches = todos.search(query, FOUND_LISTED_TASKS);
+        if (matches.getTotal() == 0) {
             return (" Sorry no tasks found matching that word :<");
         }
-        return (" Here are the matching tasks:\n" + matchingTasksString);
+        String header = matches.getTotal() > matches.getTasks().size()
+                ? " Here are the best " + matches.getTasks().size() + " of " + matches.getTotal() + " matching tasks:\n"
+                : " Here are the matching tasks:\n";
+        return listTasks(header, matches.getTasks());
+    }
+
+    /**
+     * Processes the due command, listing deadlines and events due in a date range, earliest first
+     * e.g. due before 2024-12-31 or due between 2024-12-01 and 2024-12-07 2359. Archived tasks due then are included,
+     * reading only the archived months the range covers
+     * @param command the parsed command
+     * @param todos the list of tasks
+     * @param isVerbose the verbosity of the output
+     * @param storage the storage object, holding the archived tasks
+     * @return the string output
+     */
+    public static String processDue(ParsedCommand command, TaskList todos, Boolean isVerbose, Storage storage) {
+        String usage = " Nuh uh! Use due before {datetime} or due between {datetime} and {datetime}";
+        String arguments = command.getArguments().trim();
+        List<Task> dueTasks;
+        try {
+            if (arguments.startsWith("before ")) {
+                LocalDateTime end = Task.parseDateTime(arguments.substring("before ".length()).trim());
+                dueTasks = mergeByDue(todos.findDueBefore(end),
+                        storage == null ? List.of() : storage.findArchivedDueBefore(end));
+            } else if (arguments.startsWith("between ") && arguments.contains(" and ")) {
+                String range[] = arguments.substring("between ".length()).split(" and ", 2);
+                LocalDateTime start = Task.parseDateTime(range[0].trim());
+                LocalDateTime end = Task.parseDateTime(range[1].trim());
+                dueTasks = mergeByDue(todos.findDueBetween(start, end),
+                        storage == null ? List.of() : storage.findArchivedDueBetween(start, end));
+            } else {
+                throw new DukeException(usage);
+            }
+        } catch (DateTimeParseException e) {
+            return BAD_DATE_MESSAGE;
+        }
+        if (dueTasks.isEmpty()) {
+            return (" Nothing due then, time for a nap!");
+        }
+        return listTasks(" Here are the tasks due then:\n", dueTasks);
+    }
+
+    /**
+     * Merges two lists of tasks sorted by when they are due into one
+     * @param first tasks sorted by when they are due
+     * @param second more tasks sorted by when they are due
+     * @return all the tasks, earliest first
+     */
+    private static List<Task> mergeByDue(List<Task> first, List<Task> second) {
+        if (second.isEmpty()) {
+            return first;
+        }
+        List<Task> merged = new ArrayList<>(first.size() + second.size());
+        int i = 0;
+        int j = 0;
+        while (i < first.size() || j < second.size()) {
+            boolean isFirst = j == second.size() || i < first.size()
+                    && !first.get(i).getDueDateTime().isAfter(second.get(j).getDueDateTime());
+            merged.add(isFirst ? first.get(i++) : second.get(j++));
+        }
+        return merged;
+    }
+
+    /**
+     * Processes the overdue command, listing deadlines and events that are not done yet although their date passed
+     * @param command the parsed command
+     * @param todos the list of tasks
+     * @param isVerbose the verbosity of the output
+     * @return the string output
+     */
+    public static String processOverdue(ParsedCommand command, TaskList todos, Boolean isVerbose) {
+        List<Task> overdueTasks = todos.findUndoneDueBefore(LocalDateTime.now());
+        if (overdueTasks.isEmpty()) {
+            return (" Nothing overdue, good dog!");
+        }
+        return listTasks(" Uh oh, these are overdue:\n", overdueTasks);
+    }
+
+    /**
+     * Lists tasks found by a query, each shown with its id since their numbers in the list are not known
+     * @param header the line shown above the tasks
+     * @param tasks the tasks found
+     * @return the string output
+     */
+    private static String listTasks(String header, List<Task> tasks) {
+        StringBuilder tasksString = new StringBuilder(header.length() + tasks.size() * 64).append(header);
+        for (int i = 0; i < tasks.size(); i++) {
+            tasksString.append('#').append(tasks.get(i).getId()).append(' ').append(tasks.get(i).toString())
+                    .append("\n");
+        }
+        return tasksString.toString();
     }
 }
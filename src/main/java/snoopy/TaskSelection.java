@@ -0,0 +1,106 @@
+package snoopy;
+
+import exceptions.DukeException;
+import exceptions.TaskNotExistException;
+import service.TaskList;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * The tasks a bulk mark, unmark or delete applies to: task numbers and ranges of them such as 3,7,9 or 1-500, ids such
+ * as #17, or every task matching a filter such as /done or /tag sprint12. Built by {@link CommandParser}.
+ */
+public class TaskSelection {
+
+    /**
+     * What a selection picks tasks by.
+     */
+    enum Kind {
+        NUMBERS, DONE, UNDONE, TAG
+    }
+
+    private final Kind kind;
+    // First and last task number of each range, counting from 0. A single number is a range of one.
+    private final List<int[]> ranges;
+    private final List<Integer> ids;
+    private final String tagQuery;
+
+    private TaskSelection(Kind kind, List<int[]> ranges, List<Integer> ids, String tagQuery) {
+        this.kind = kind;
+        this.ranges = ranges;
+        this.ids = ids;
+        this.tagQuery = tagQuery;
+    }
+
+    /**
+     * Creates a selection of task numbers, ranges of them and ids.
+     * @param ranges first and last task number of each range, counting from 0.
+     * @param ids ids of single tasks.
+     * @return the selection.
+     */
+    static TaskSelection ofNumbers(List<int[]> ranges, List<Integer> ids) {
+        return new TaskSelection(Kind.NUMBERS, ranges, ids, null);
+    }
+
+    /**
+     * Creates a selection of every task matching a filter.
+     * @param kind DONE, UNDONE or TAG.
+     * @param tagQuery the tags to look for, for TAG.
+     * @return the selection.
+     */
+    static TaskSelection ofFilter(Kind kind, String tagQuery) {
+        return new TaskSelection(kind, List.of(), List.of(), tagQuery);
+    }
+
+    Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Finds the index numbers of the selected tasks in the list as it is now.
+     * @param todos the list of tasks.
+     * @return the index numbers selected.
+     * @throws TaskNotExistException if a task number or id is not in the list.
+     * @throws DukeException if a range goes backwards, e.g. 5-3.
+     */
+    public BitSet positionsIn(TaskList todos) {
+        switch (kind) {
+        case TAG:
+            return todos.findByTags(tagQuery);
+        case DONE:
+        case UNDONE:
+            boolean isDone = kind == Kind.DONE;
+            BitSet matching = new BitSet();
+            int[] index = {0};
+            todos.snapshot().forEach(task -> {
+                if (task.isDone() == isDone) {
+                    matching.set(index[0]);
+                }
+                index[0]++;
+            });
+            return matching;
+        default:
+            BitSet positions = new BitSet();
+            int size = todos.size();
+            for (int[] range : ranges) {
+                if (range[0] > range[1]) {
+                    throw new DukeException(" Nuh uh! " + (range[0] + 1) + "-" + (range[1] + 1)
+                            + " goes backwards, try " + (range[1] + 1) + "-" + (range[0] + 1) + "!");
+                }
+                if (range[1] >= size) {
+                    throw new TaskNotExistException(Integer.toString(range[1] + 1));
+                }
+                positions.set(range[0], range[1] + 1);
+            }
+            for (int id : ids) {
+                int position = todos.indexOfId(id);
+                if (position < 0) {
+                    throw new TaskNotExistException("#" + id);
+                }
+                positions.set(position);
+            }
+            return positions;
+        }
+    }
+}
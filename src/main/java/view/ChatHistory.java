@@ -0,0 +1,114 @@
+package view;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * The messages shown in the chat window. Only the latest ones are kept in memory; once there are more than the
+ * cap, the oldest are dropped from the window and appended to a transcript file, on the executor given so the
+ * JavaFX thread never waits for the disk.
+ * The cap is read from the snoopy.chat.maxMessages system property.
+ */
+public class ChatHistory {
+
+    static final int DEFAULT_MAX_MESSAGES = 1000;
+    private static final String TRANSCRIPT_PATH = "./data/snoopy.transcript.txt";
+
+    private final ObservableList<ChatMessage> messages = FXCollections.observableArrayList();
+    private final int maxMessages;
+    private final Path transcriptPath;
+    private final Executor transcriptWriter;
+
+    /**
+     * Creates a chat history that writes the transcript on the calling thread.
+     * @param maxMessages most messages kept in memory.
+     * @param transcriptPath file the older messages are appended to.
+     */
+    public ChatHistory(int maxMessages, Path transcriptPath) {
+        this(maxMessages, transcriptPath, Runnable::run);
+    }
+
+    /**
+     * Creates a chat history.
+     * @param maxMessages most messages kept in memory.
+     * @param transcriptPath file the older messages are appended to.
+     * @param transcriptWriter runs the writes to the transcript, one at a time and in order.
+     */
+    public ChatHistory(int maxMessages, Path transcriptPath, Executor transcriptWriter) {
+        assert(maxMessages > 0);
+        this.maxMessages = maxMessages;
+        this.transcriptPath = transcriptPath;
+        this.transcriptWriter = transcriptWriter;
+    }
+
+    /**
+     * Creates a chat history using the cap in the snoopy.chat.maxMessages system property, 1000 by default.
+     * @param transcriptWriter runs the writes to the transcript, one at a time and in order.
+     * @return the chat history.
+     */
+    public static ChatHistory fromSystemProperties(Executor transcriptWriter) {
+        return new ChatHistory(Integer.getInteger("snoopy.chat.maxMessages", DEFAULT_MAX_MESSAGES),
+                Path.of(TRANSCRIPT_PATH), transcriptWriter);
+    }
+
+    /**
+     * Returns the messages kept in memory, oldest first, for the chat window to show.
+     * @return the messages kept in memory.
+     */
+    public ObservableList<ChatMessage> getMessages() {
+        return messages;
+    }
+
+    /**
+     * Adds a message, moving the oldest ones to the transcript if there are more than the cap.
+     * @param message the message to add.
+     */
+    public void add(ChatMessage message) {
+        messages.add(message);
+        if (messages.size() > maxMessages) {
+            // spill a tenth more than needed, so this happens once every so many messages rather than every time
+            spill(messages.size() - maxMessages + maxMessages / 10);
+        }
+    }
+
+    /**
+     * Drops the oldest messages from memory and has them appended to the transcript file.
+     * @param count number of messages to move.
+     */
+    private void spill(int count) {
+        List<ChatMessage> oldest = messages.subList(0, count);
+        List<String> lines = new ArrayList<>(count);
+        for (ChatMessage message : oldest) {
+            lines.add(message.toTranscriptString());
+        }
+        // one change for the whole range, so the list view only updates once
+        oldest.clear();
+        transcriptWriter.execute(() -> appendToTranscript(lines));
+    }
+
+    private void appendToTranscript(List<String> lines) {
+        try {
+            Path parent = transcriptPath.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            try (BufferedWriter writer = Files.newBufferedWriter(transcriptPath, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (String line : lines) {
+                    writer.write(line);
+                    writer.newLine();
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Unable to write the chat transcript: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package view;
+
+/**
+ * One message of the chat history: something the user sent, or Snoopy's reply to it.
+ */
+public class ChatMessage {
+
+    private final String text;
+    private final boolean isFromUser;
+
+    private ChatMessage(String text, boolean isFromUser) {
+        this.text = text;
+        this.isFromUser = isFromUser;
+    }
+
+    public static ChatMessage fromUser(String text) {
+        return new ChatMessage(text, true);
+    }
+
+    public static ChatMessage fromSnoopy(String text) {
+        return new ChatMessage(text, false);
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public boolean isFromUser() {
+        return isFromUser;
+    }
+
+    /**
+     * Obtains the message as written to the transcript file.
+     * @return the sender followed by the message.
+     */
+    public String toTranscriptString() {
+        return (isFromUser ? "You: " : "Snoopy: ") + text;
+    }
+}
@@ -0,0 +1,75 @@
+package view;
+
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Region;
+
+/**
+ * Shows one chat message as a speech bubble next to the speaker's picture.
+ * The list view only creates enough cells to fill the window and reuses them while scrolling, and each cell builds
+ * its controls once in code, so showing a message never loads FXML.
+ */
+public class DialogCell extends ListCell<ChatMessage> {
+
+    private static final int PADDING = 10;
+    private static final int PICTURE_SIZE = 99;
+    // Room left beside the text for the picture, the paddings and the scroll bar.
+    private static final int TEXT_MARGIN = PICTURE_SIZE + 4 * PADDING + 20;
+
+    private final Label dialog = new Label();
+    private final ImageView displayPicture = new ImageView();
+    private final HBox box = new HBox();
+    private final Image userImage;
+    private final Image dukeImage;
+
+    /**
+     * Creates a cell for the given list view.
+     * @param listView the list view the cell is shown in.
+     * @param userImage picture shown next to the user's messages.
+     * @param dukeImage picture shown next to Snoopy's messages.
+     */
+    public DialogCell(ListView<ChatMessage> listView, Image userImage, Image dukeImage) {
+        this.userImage = userImage;
+        this.dukeImage = dukeImage;
+
+        dialog.setPadding(new Insets(PADDING));
+        dialog.setWrapText(true);
+        dialog.setMinHeight(Region.USE_PREF_SIZE);
+        dialog.maxWidthProperty().bind(listView.widthProperty().subtract(TEXT_MARGIN));
+        displayPicture.setFitHeight(PICTURE_SIZE);
+        displayPicture.setFitWidth(PICTURE_SIZE);
+        displayPicture.setPreserveRatio(true);
+        box.setPadding(new Insets(PADDING));
+
+        setPrefWidth(0);
+        setText(null);
+    }
+
+    @Override
+    protected void updateItem(ChatMessage message, boolean isEmpty) {
+        super.updateItem(message, isEmpty);
+        if (isEmpty || message == null) {
+            setGraphic(null);
+            return;
+        }
+
+        dialog.setText(message.getText());
+        if (message.isFromUser()) {
+            displayPicture.setImage(userImage);
+            box.getChildren().setAll(dialog, displayPicture);
+            box.setAlignment(Pos.TOP_RIGHT);
+        } else {
+            // Snoopy's replies are flipped, with the picture on the left
+            displayPicture.setImage(dukeImage);
+            box.getChildren().setAll(displayPicture, dialog);
+            box.setAlignment(Pos.TOP_LEFT);
+        }
+        setGraphic(box);
+    }
+}
@@ -2,43 +2,59 @@ package view;
 
 import com.sun.tools.javac.Main;
 import snoopy.Snoopy;
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.scene.control.Button;
-import javafx.scene.control.ScrollPane;
+import javafx.scene.control.ListView;
+import javafx.scene.control.ProgressIndicator;
 import javafx.scene.control.TextField;
 import javafx.scene.image.Image;
 import javafx.scene.layout.AnchorPane;
-import javafx.scene.layout.VBox;
 
-import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 
 /**
  * Controller for view.MainWindow. Provides the layout for the other controls.
+ * Commands run on a background thread one at a time, in the order they were sent, so the window stays responsive
+ * while a command or the save after it is slow.
  */
 public class MainWindow extends AnchorPane {
 
     private static final int WINDOW_HEIGHT = 600;
     private static final int WINDOW_WIDTH = 400;
+    // Longest the window waits for the tasks to be saved once it is closed.
+    private static final long CLOSE_TIMEOUT_SECONDS = 10;
     @FXML
-    private ScrollPane scrollPane;
-    @FXML
-    private VBox dialogContainer;
+    private ListView<ChatMessage> chatList;
     @FXML
     private TextField userInput;
     @FXML
     private Button sendButton;
+    @FXML
+    private ProgressIndicator busyIndicator;
 
     private Snoopy snoopy;
+    // A single thread, so commands run in the order they were sent. Also writes the chat transcript.
+    private final ExecutorService commandExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "snoopy-commands");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ChatHistory history = ChatHistory.fromSystemProperties(commandExecutor);
+    // Commands sent but not answered yet. Only touched on the JavaFX thread.
+    private int pendingCommands;
 
     private Image userImage = new Image(this.getClass().getResourceAsStream("/images/DaUser.png"));
     private Image dukeImage = new Image(this.getClass().getResourceAsStream("/images/DaDuke.png"));
 
     @FXML
     public void initialize() {
-        scrollPane.vvalueProperty().bind(dialogContainer.heightProperty());
-        dialogContainer.setPrefHeight(this.USE_COMPUTED_SIZE);
+        chatList.setItems(history.getMessages());
+        chatList.setCellFactory(listView -> new DialogCell(listView, userImage, dukeImage));
+        busyIndicator.setVisible(false);
     }
 
     /**
@@ -49,37 +65,84 @@ public class MainWindow extends AnchorPane {
     }
 
     /**
-     * Creates two dialog boxes, one echoing user input and the other containing Snoopy's reply and then appends them to
-     * the dialog container. Clears the user input after processing.
+     * Echoes the user input in the chat and queues the command, clearing the user input straight away.
+     * Snoopy's reply is appended to the chat once the command has run.
      */
     @FXML
-    private void handleUserInput() throws InterruptedException {
+    private void handleUserInput() {
         String input = userInput.getText();
-        Boolean isBye = false;
-        if (input.toUpperCase().equals("BYE")) {
-            isBye = true;
+        if (input.isBlank()) {
+            return;
         }
-        String response = snoopy.getResponse(input);
-        dialogContainer.getChildren().addAll(
-                DialogBox.getUserDialog(input, userImage),
-                DialogBox.getDukeDialog(response, dukeImage)
-        );
+        boolean isBye = input.trim().equalsIgnoreCase("BYE");
+        addMessage(ChatMessage.fromUser(input));
         userInput.clear();
+        setPendingCommands(pendingCommands + 1);
+        if (isBye) {
+            // nothing sent after bye would run
+            userInput.setDisable(true);
+            sendButton.setDisable(true);
+        }
+
+        commandExecutor.execute(() -> {
+            String response = snoopy.getResponse(input);
+            Platform.runLater(() -> showResponse(response, isBye));
+        });
+    }
+
+    /**
+     * Appends Snoopy's reply to the chat.
+     * @param response Snoopy's reply.
+     * @param isBye whether the reply was to "bye", which closes the program.
+     */
+    private void showResponse(String response, boolean isBye) {
+        addMessage(ChatMessage.fromSnoopy(response));
+        setPendingCommands(pendingCommands - 1);
         exitProgramCheck(isBye);
     }
 
+    private void addMessage(ChatMessage message) {
+        history.add(message);
+        chatList.scrollTo(history.getMessages().size() - 1);
+    }
+
+    private void setPendingCommands(int pendingCommands) {
+        this.pendingCommands = pendingCommands;
+        busyIndicator.setVisible(pendingCommands > 0);
+    }
+
     /**
-     * Checks if the user has inputted "bye" and exits the program if so.
+     * Checks if the user has inputted "bye" and, if so, exits the program once its tasks are saved.
+     * Saving happens on the command thread, so the farewell stays visible meanwhile.
      * @param isBye whether the user has inputted "bye"
      */
-    private void exitProgramCheck(Boolean isBye) {
+    private void exitProgramCheck(boolean isBye) {
         if (isBye) {
-            try {
-                TimeUnit.SECONDS.sleep(1);
-            } catch (InterruptedException e) {
-                throw new RuntimeException(e);
+            busyIndicator.setVisible(true);
+            commandExecutor.execute(() -> {
+                snoopy.close();
+                Platform.runLater(Platform::exit);
+            });
+            commandExecutor.shutdown();
+        }
+    }
+
+    /**
+     * Saves the tasks on the command thread once the commands still queued have run, e.g. when the window is
+     * closed, waiting a bounded time for it rather than saving on the JavaFX thread.
+     */
+    public void close() {
+        // after bye, the save is already queued
+        if (!commandExecutor.isShutdown()) {
+            commandExecutor.execute(snoopy::close);
+            commandExecutor.shutdown();
+        }
+        try {
+            if (!commandExecutor.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                System.err.println("Gave up waiting for the tasks to be saved");
             }
-            System.exit(0);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 
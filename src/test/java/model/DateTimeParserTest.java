@@ -0,0 +1,55 @@
+package model;
+
+import exceptions.BadDateException;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class DateTimeParserTest {
+
+    @Test
+    public void parse_everyFormat_sameMoment(){
+        LocalDateTime evening = LocalDateTime.of(2024, 12, 14, 18, 0);
+        assertEquals(evening, DateTimeParser.parse("2024-12-14 1800"));
+        assertEquals(evening, DateTimeParser.parse("14/12/2024 1800"));
+        assertEquals(evening, DateTimeParser.parse("2024-12-14 18:00"));
+        assertEquals(evening, DateTimeParser.parse("14/12/2024 18:00"));
+
+        LocalDateTime midnight = LocalDateTime.of(2024, 12, 14, 0, 0);
+        assertEquals(midnight, DateTimeParser.parse("2024-12-14"));
+        assertEquals(midnight, DateTimeParser.parse("14-12-2024"));
+        assertEquals(midnight, DateTimeParser.parse("2024/12/14"));
+        assertEquals(midnight, DateTimeParser.parse("14/12/2024"));
+    }
+
+    @Test
+    public void parse_pastEndOfMonthOrDay_resolvedLikeFormatters(){
+        assertEquals(LocalDateTime.of(2024, 2, 29, 0, 0), DateTimeParser.parse("2024-02-30"));
+        assertEquals(LocalDateTime.of(2025, 1, 1, 0, 0), DateTimeParser.parse("31/12/2024 2400"));
+    }
+
+    @Test
+    public void parse_unsupportedShapes_null(){
+        assertNull(DateTimeParser.parse("2024-13-01"));
+        assertNull(DateTimeParser.parse("0000-01-01"));
+        assertNull(DateTimeParser.parse("2024/12/14 1800"));
+        assertNull(DateTimeParser.parse("2024-12-14 2401"));
+        assertNull(DateTimeParser.parse("tomorrow"));
+    }
+
+    @Test
+    public void badDate_sameMessages(){
+        assertThrows(DateTimeParseException.class, () -> Task.parseDateTime("tomorrow"));
+        BadDateException e = assertThrows(BadDateException.class, () -> new Deadline("test", "tomorrow"));
+        assertEquals("Bad date provided! Check the format or validity of date: tomorrow\n"
+                + "Invalid date/time format\n"
+                + "Expected: YYYY-MM-DD or YYYY/MM/DD or DD-MM-YYYY or DD/MM/YYYY\n"
+                + "Example: 2024-12-14\n", e.getMessage());
+    }
+
+}
@@ -22,6 +22,16 @@ public class DeadlineTest {
         assertEquals("[D][ ] test description (by: Mar 05 2024 1800)", deadline.toString());
     }
 
+    @Test
+    public void marking_renderedLineUpdated(){
+        Deadline deadline = new Deadline("test description", "2024-03-05 1800");
+        assertEquals("[D][ ] test description (by: Mar 05 2024 1800)", deadline.toString());
+        deadline.markAsDone();
+        assertEquals("[D][X] test description (by: Mar 05 2024 1800)", deadline.toString());
+        deadline.markAsUndone();
+        assertEquals("[D][ ] test description (by: Mar 05 2024 1800)", deadline.toString());
+    }
+
 }
 
 
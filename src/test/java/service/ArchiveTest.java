@@ -0,0 +1,178 @@
+package service;
+
+import exceptions.DukeException;
+import model.Deadline;
+import model.Task;
+import model.Todo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ArchiveTest {
+
+    @TempDir
+    Path directory;
+
+    private Path file() {
+        return directory.resolve("snoopy.txt");
+    }
+
+    private Path archiveDirectory() {
+        return directory.resolve("snoopy.archive");
+    }
+
+    private Storage storage(boolean isCompressed) {
+        return new Storage(file().toString(), new StorageConfig(StorageConfig.Mode.SYNC, 200, 1000,
+                StorageConfig.Fsync.NEVER, StorageConfig.Format.TEXT, 0, isCompressed));
+    }
+
+    private static List<String> descriptions(List<Task> tasks) {
+        List<String> descriptions = new ArrayList<>();
+        for (Task task : tasks) {
+            descriptions.add(task.getDescription());
+        }
+        return descriptions;
+    }
+
+    private List<String> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(archiveDirectory())) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> !name.equals(Archive.MANIFEST))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private List<String> archivedAfterReopening() throws Exception {
+        Storage storage = storage(true);
+        storage.loadInfo(new TaskList());
+        return descriptions(storage.getArchived());
+    }
+
+    /**
+     * Saves a todo kept in the list, and deadlines in January and March 2024 that are done, then archives them.
+     */
+    private void archiveJanuaryAndMarch(boolean isCompressed) throws Exception {
+        Storage storage = storage(isCompressed);
+        TaskList todos = new TaskList();
+        storage.loadInfo(todos);
+        todos.add(new Todo("kept"));
+        todos.add(new Deadline("essay", "2024-01-15 1800"));
+        todos.add(new Deadline("quiz", "2024-03-05 0900"));
+        todos.markAsDone(1);
+        todos.markAsDone(2);
+        storage.updateRecords(todos);
+        assertEquals(List.of("essay", "quiz"), descriptions(storage.archiveFinished(todos, null)));
+        storage.close();
+    }
+
+    @Test
+    public void archiveFinished_reopened_archivedTasksListedAndFoundByDate() throws Exception {
+        archiveJanuaryAndMarch(true);
+
+        Storage storage = storage(true);
+        TaskList todos = new TaskList();
+        storage.loadInfo(todos);
+        assertEquals(1, todos.size());
+        assertEquals("kept", todos.get(0).getDescription());
+        assertEquals(2, storage.getArchivedCount());
+        assertEquals(List.of("essay", "quiz"), descriptions(storage.getArchived()));
+        assertEquals(List.of("quiz"), descriptions(storage.findArchivedDueBetween(
+                LocalDateTime.of(2024, 3, 1, 0, 0), LocalDateTime.of(2024, 3, 31, 23, 59))));
+        assertEquals(List.of("essay"), descriptions(storage.findArchivedDueBefore(
+                LocalDateTime.of(2024, 3, 5, 9, 0))));
+    }
+
+    @Test
+    public void archiveFinished_compressedOrNot_segmentsReadBackEitherWay() throws Exception {
+        archiveJanuaryAndMarch(true);
+        assertEquals(List.of("2024-01.1.txt.gz", "2024-03.1.txt.gz"), segmentFiles());
+        assertEquals(List.of("essay", "quiz"), archivedAfterReopening());
+
+        // archiving again, uncompressed this time, adds plain segments next to the gzipped ones
+        Storage storage = storage(false);
+        TaskList todos = new TaskList();
+        storage.loadInfo(todos);
+        todos.add(new Deadline("report", "2024-03-20 1200"));
+        todos.markAsDone(1);
+        storage.archiveFinished(todos, null);
+        storage.close();
+        assertEquals(List.of("2024-01.1.txt.gz", "2024-03.1.txt.gz", "2024-03.2.txt"), segmentFiles());
+        assertEquals(List.of("essay", "quiz", "report"), archivedAfterReopening());
+    }
+
+    @Test
+    public void findArchivedDueBetween_readsOnlyTheMonthsCovered() throws Exception {
+        archiveJanuaryAndMarch(false);
+        Files.delete(archiveDirectory().resolve("2024-01.1.txt"));
+
+        Storage storage = storage(false);
+        storage.loadInfo(new TaskList());
+        assertEquals(List.of("quiz"), descriptions(storage.findArchivedDueBetween(
+                LocalDateTime.of(2024, 2, 1, 0, 0), LocalDateTime.of(2024, 3, 31, 23, 59))));
+        // the January segment is only missed by a query covering it
+        assertThrows(DukeException.class, storage::getArchived);
+    }
+
+    @Test
+    public void loadInfo_segmentNewerThanSnapshot_tasksTakenOutOfList() throws Exception {
+        Storage storage = storage(true);
+        TaskList todos = new TaskList();
+        storage.loadInfo(todos);
+        todos.add(new Todo("kept"));
+        todos.add(new Todo("done"));
+        todos.markAsDone(1);
+        storage.updateRecords(todos);
+        byte[] beforeArchiving = Files.readAllBytes(file());
+        storage.archiveFinished(todos, null);
+        storage.close();
+        // a crash after the segment was written but before the snapshot without its task
+        Files.write(file(), beforeArchiving);
+        Files.writeString(directory.resolve("snoopy.journal"),
+                "G | " + SnapshotFile.read(file()).getGeneration() + "\n");
+
+        storage = storage(true);
+        TaskList reopened = new TaskList();
+        storage.loadInfo(reopened);
+        storage.close();
+        assertEquals(1, reopened.size());
+        assertEquals("kept", reopened.get(0).getDescription());
+        assertEquals(List.of("done"), descriptions(storage.getArchived()));
+        // the archiving was finished by saving the snapshot without the task
+        assertEquals(1, SnapshotFile.read(file()).getTasks().size());
+    }
+
+    @Test
+    public void loadInfo_archivedIdsStayReserved() throws Exception {
+        Storage storage = storage(true);
+        TaskList todos = new TaskList();
+        storage.loadInfo(todos);
+        todos.add(new Todo("kept"));
+        todos.add(new Todo("done"));
+        todos.markAsDone(1);
+        storage.archiveFinished(todos, null);
+        storage.close();
+
+        storage = storage(true);
+        TaskList reopened = new TaskList();
+        storage.loadInfo(reopened);
+        reopened.add(new Todo("new"));
+        storage.recordAdd(reopened);
+        storage.close();
+        assertEquals(3, reopened.get(1).getId());
+        assertTrue(storage.getArchived().get(0).getId() < reopened.get(1).getId());
+    }
+
+}
@@ -0,0 +1,50 @@
+package service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class BinarySnapshotFileTest {
+
+    private static final List<String> LINES = List.of(
+            "T | 1 | read book | fun | 1",
+            "D | 0 | return book | 2024-02-01 1800 |  | 2",
+            "D | 0 | pay rent | 2024-02-30 | home | 3",
+            "E | 1 | meeting | 01/02/2024 18:00 | 2024-02-01 1900 | work urgent | 4",
+            "E | 0 | caf\u00e9 \u2713 | 1900-01-01 | 1900-01-01 2359 |  | 5");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void convert_textToBinaryAndBack_keepsEveryLine() throws IOException {
+        Path text = directory.resolve("snoopy.txt");
+        Files.writeString(text, String.join("\n", LINES));
+        Storage.convert(text.toString(), directory.resolve("snoopy.bin").toString());
+        Storage.convert(directory.resolve("snoopy.bin").toString(), directory.resolve("back.txt").toString());
+
+        List<String> converted = Files.readAllLines(directory.resolve("back.txt"));
+        assertEquals(LINES, converted.subList(1, converted.size() - 1));
+    }
+
+    @Test
+    public void read_cutShort_isNotIntact() throws IOException {
+        Path text = directory.resolve("snoopy.txt");
+        Files.writeString(text, String.join("\n", LINES));
+        Path binary = directory.resolve("snoopy.bin");
+        Storage.convert(text.toString(), binary.toString());
+        byte[] bytes = Files.readAllBytes(binary);
+        Files.write(binary, Arrays.copyOf(bytes, bytes.length - 10));
+
+        SnapshotFile snapshot = SnapshotFile.read(binary);
+        assertFalse(snapshot.isIntact());
+    }
+}
@@ -0,0 +1,54 @@
+package service;
+
+import model.Task;
+import model.Todo;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class SearchIndexTest {
+
+    private static List<String> descriptions(List<Task> tasks) {
+        List<String> descriptions = new ArrayList<>();
+        for (Task task : tasks) {
+            descriptions.add(task.getDescription());
+        }
+        return descriptions;
+    }
+
+    @Test
+    public void find_ignoresCaseAndMatchesPrefixesAndTypos(){
+        TaskList todos = new TaskList();
+        todos.add(new Todo("Buy groceries", "Home"));
+        todos.add(new Todo("write report", "work"));
+        todos.add(new Todo("read book", null));
+        assertEquals(List.of("Buy groceries"), descriptions(todos.find("GROCERIES #home")));
+        assertEquals(List.of("write report"), descriptions(todos.find("rep")));
+        assertEquals(List.of("Buy groceries"), descriptions(todos.find("grocreies")));
+        assertEquals(List.of("read book"), descriptions(todos.find("boko")));
+        todos.add(new Todo("test run", null));
+        assertEquals(List.of("test run"), descriptions(todos.find("tset")));
+        assertEquals(List.of("test run"), descriptions(todos.find("tets")));
+        assertEquals(List.of("write report"), descriptions(todos.find("#wrok")));
+        assertEquals(List.of(), todos.find("bk"));
+        assertEquals(List.of(), todos.find("book work"));
+    }
+
+    @Test
+    public void search_keepsBestMatchesFirstUpToLimit(){
+        TaskList todos = new TaskList();
+        todos.add(new Todo("reports due", null));
+        todos.add(new Todo("read bok", null));
+        todos.add(new Todo("read book", null));
+        todos.add(new Todo("book club", null));
+        SearchIndex.Result result = todos.search("book", 2);
+        assertEquals(List.of("read book", "book club"), descriptions(result.getTasks()));
+        assertEquals(3, result.getTotal());
+        todos.remove(2);
+        assertEquals(List.of("book club", "read bok"), descriptions(todos.search("book", 5).getTasks()));
+    }
+
+}
@@ -0,0 +1,104 @@
+package service;
+
+import model.Task;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SnapshotFileTest {
+
+    private static final List<String> LINES = List.of("T | 1 | read book | fun | 1",
+            "D | 0 | return book | 2024-02-01 |  | 2");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void read_writtenSnapshot_isIntact() throws IOException {
+        Path file = write(SnapshotFile.encode(snapshotOf(LINES), 7));
+        SnapshotFile snapshot = SnapshotFile.read(file);
+        assertTrue(snapshot.isIntact());
+        assertEquals(7, snapshot.getGeneration());
+        assertEquals(2, snapshot.getTasks().size());
+        assertEquals("return book", snapshot.getTasks().get(1).getDescription());
+    }
+
+    @Test
+    public void read_cutShortOrChanged_isNotIntact() throws IOException {
+        ByteBuffer[] contents = SnapshotFile.encode(snapshotOf(LINES), 7);
+        ByteBuffer body = contents[0];
+        assertFalse(SnapshotFile.read(write(new ByteBuffer[] {body.duplicate()})).isIntact());
+
+        body.put(body.limit() - 3, (byte) '3');
+        assertFalse(SnapshotFile.read(write(contents)).isIntact());
+    }
+
+    @Test
+    public void read_fileWithoutHeader_isIntact() throws IOException {
+        Path file = directory.resolve("snoopy.txt");
+        Files.writeString(file, String.join("\n", LINES));
+        SnapshotFile snapshot = SnapshotFile.read(file);
+        assertTrue(snapshot.isIntact());
+        assertEquals(0, snapshot.getGeneration());
+        assertEquals(2, snapshot.getTasks().size());
+    }
+
+    @Test
+    public void index_writtenSnapshot_decodesTasksWhenRead() throws IOException {
+        SnapshotIndex index = SnapshotFile.index(write(SnapshotFile.encode(snapshotOf(LINES), 7)));
+        assertTrue(index.isIntact());
+        assertEquals(7, index.getGeneration());
+
+        TaskList taskList = new TaskList();
+        taskList.openLazily(index);
+        assertEquals(2, taskList.size());
+        Task read = taskList.get(1);
+        assertEquals("return book", read.getDescription());
+        taskList.finishLoading();
+        assertSame(read, taskList.find("return").get(0));
+        assertEquals(1, taskList.indexOfId(2));
+    }
+
+    @Test
+    public void index_changedOrWithoutHeader_isNotTrusted() throws IOException {
+        ByteBuffer[] contents = SnapshotFile.encode(snapshotOf(LINES), 7);
+        contents[0].put(contents[0].limit() - 3, (byte) '3');
+        assertFalse(SnapshotFile.index(write(contents)).isIntact());
+
+        Path file = directory.resolve("snoopy.txt");
+        Files.writeString(file, String.join("\n", LINES) + "\n");
+        assertNull(SnapshotFile.index(file));
+    }
+
+    private static TaskList.Snapshot snapshotOf(List<String> lines) {
+        TaskList taskList = new TaskList();
+        for (String line : lines) {
+            taskList.add(TaskDecoder.decode(Storage.splitFields(line)));
+        }
+        return taskList.snapshot();
+    }
+
+    private Path write(ByteBuffer[] contents) throws IOException {
+        Path file = directory.resolve("snoopy.txt");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (ByteBuffer buffer : contents) {
+                channel.write(buffer.duplicate());
+            }
+        }
+        return file;
+    }
+}
@@ -0,0 +1,114 @@
+package service;
+
+import model.Todo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StorageFlusherTest {
+
+    // Long enough that the timer never flushes during a test, so only the flushes a test asks for happen.
+    private static final long NEVER_MILLIS = 600_000;
+
+    @TempDir
+    Path directory;
+
+    private Path journal() {
+        return directory.resolve("snoopy.journal");
+    }
+
+    private StorageFlusher flusher(int groupCommitSize) {
+        StorageConfig config = new StorageConfig(StorageConfig.Mode.GROUP_COMMIT, NEVER_MILLIS, groupCommitSize,
+                StorageConfig.Fsync.NEVER);
+        return new StorageFlusher(directory.resolve("snoopy.txt").toString(),
+                directory.resolve("snoopy.txt.bak").toString(), journal().toString(), config);
+    }
+
+    private static String record(int i) {
+        return "A | " + new Todo("task " + i).fileSavingString();
+    }
+
+    @Test
+    public void append_burstOfRecords_writtenTogetherByFlush() throws IOException {
+        StorageFlusher flusher = flusher(10_000);
+        for (int i = 0; i < 1000; i++) {
+            flusher.append(record(i));
+        }
+        assertFalse(Files.exists(journal()));
+
+        flusher.flush();
+        List<String> lines = Files.readAllLines(journal());
+        assertEquals(1001, lines.size());
+        assertEquals("G | 0", lines.get(0));
+        assertEquals(record(999), lines.get(1000));
+        flusher.close();
+    }
+
+    @Test
+    public void append_groupCommitSizeReached_flushedInBackground() throws Exception {
+        StorageFlusher flusher = flusher(100);
+        for (int i = 0; i < 100; i++) {
+            flusher.append(record(i));
+        }
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while ((!Files.exists(journal()) || Files.readAllLines(journal()).size() < 101)
+                && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(101, Files.readAllLines(journal()).size());
+        flusher.close();
+    }
+
+    @Test
+    public void replaceWith_dropsRecordsQueuedBefore() throws IOException {
+        StorageFlusher flusher = flusher(10_000);
+        flusher.appendAll(List.of(record(1), record(2), record(3)));
+        TaskList todos = new TaskList();
+        todos.add(new Todo("kept"));
+        flusher.replaceWith(todos.snapshot());
+        flusher.append(record(4));
+        flusher.close();
+
+        SnapshotFile snapshot = SnapshotFile.read(directory.resolve("snoopy.txt"));
+        assertEquals(1, snapshot.getGeneration());
+        assertEquals(1, snapshot.getTasks().size());
+        assertEquals(List.of("G | 1", record(4)), Files.readAllLines(journal()));
+    }
+
+    @Test
+    public void flush_writeFails_recordsKeptForNextFlush() throws IOException {
+        StorageFlusher flusher = flusher(10_000);
+        // a directory where the journal goes, so opening it fails
+        Files.createDirectory(journal());
+        flusher.appendAll(List.of(record(1), record(2)));
+        assertThrows(RuntimeException.class, flusher::flush);
+
+        Files.delete(journal());
+        flusher.append(record(3));
+        flusher.close();
+        assertEquals(List.of("G | 0", record(1), record(2), record(3)), Files.readAllLines(journal()));
+    }
+
+    @Test
+    public void close_writesWhatIsQueuedFirst() throws IOException {
+        StorageFlusher flusher = flusher(10_000);
+        flusher.append(record(1));
+        flusher.close();
+        assertEquals(List.of("G | 0", record(1)), Files.readAllLines(journal()));
+
+        // a flusher closed once starts again when used
+        flusher.append(record(2));
+        flusher.close();
+        assertTrue(Files.readAllLines(journal()).contains(record(2)));
+    }
+
+}
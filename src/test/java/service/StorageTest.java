@@ -0,0 +1,429 @@
+package service;
+
+import model.Task;
+import model.Todo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StorageTest {
+
+    private static final StorageConfig SYNC = new StorageConfig(StorageConfig.Mode.SYNC, 200, 1000,
+            StorageConfig.Fsync.NEVER);
+
+    @TempDir
+    Path directory;
+
+    private Path file() {
+        return directory.resolve("snoopy.txt");
+    }
+
+    private Storage storage() {
+        return new Storage(file().toString(), SYNC);
+    }
+
+    private static List<String> descriptions(TaskList todos) {
+        List<String> descriptions = new ArrayList<>();
+        todos.snapshot().forEach(task -> descriptions.add(task.getDescription()));
+        return descriptions;
+    }
+
+    private static List<Integer> ids(TaskList todos) {
+        List<Integer> ids = new ArrayList<>();
+        todos.snapshot().forEach(task -> ids.add(task.getId()));
+        return ids;
+    }
+
+    private static void awaitLoader() throws InterruptedException {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals("snoopy-task-loader")) {
+                thread.join();
+            }
+        }
+    }
+
+    /**
+     * Saves snapshots of "a", then "a" and "b", so the latest snapshot has a backup.
+     */
+    private void saveTwoSnapshots() throws Exception {
+        Storage storage = storage();
+        TaskList todos = new TaskList();
+        storage.loadInfo(todos);
+        todos.add(new Todo("a"));
+        storage.updateRecords(todos);
+        todos.add(new Todo("b"));
+        storage.updateRecords(todos);
+        storage.close();
+    }
+
+    @Test
+    public void loadInfo_snapshotMissing_restoresBackup() throws Exception {
+        saveTwoSnapshots();
+        Files.delete(file());
+
+        TaskList todos = new TaskList();
+        LoadReport report = storage().loadInfo(todos);
+        assertEquals(List.of("a"), descriptions(todos));
+        assertTrue(report.getRecovery().startsWith("Restored the previous snapshot"));
+    }
+
+    @Test
+    public void loadInfo_snapshotTorn_restoresBackupAndKeepsTornFile() throws Exception {
+        saveTwoSnapshots();
+        byte[] written = Files.readAllBytes(file());
+        byte[] torn = new byte[written.length - 10];
+        System.arraycopy(written, 0, torn, 0, torn.length);
+        Files.write(file(), torn);
+
+        Storage storage = storage();
+        TaskList todos = new TaskList();
+        LoadReport report = storage.loadInfo(todos);
+        storage.close();
+        assertEquals(List.of("a"), descriptions(todos));
+        assertTrue(report.getRecovery().startsWith("The saved tasks were damaged"));
+        Path corrupt = directory.resolve("snoopy.corrupt.txt");
+        assertTrue(Files.exists(corrupt));
+        assertEquals(torn.length, Files.size(corrupt));
+        // the recovered tasks are saved again, so the next start needs no recovery
+        TaskList reopened = new TaskList();
+        assertNull(storage().loadInfo(reopened).getRecovery());
+        assertEquals(List.of("a"), descriptions(reopened));
+    }
+
+    @Test
+    public void loadInfo_journalOfOlderSnapshot_notReplayed() throws Exception {
+        saveTwoSnapshots();
+        Path journal = directory.resolve("snoopy.journal");
+        String stale = "A | " + new Todo("b").fileSavingString() + "\n";
+        // a crash after the snapshot was renamed into place but before its journal was started
+        Files.writeString(journal, "G | 1\n" + stale);
+        TaskList todos = new TaskList();
+        Storage storage = storage();
+        storage.loadInfo(todos);
+        storage.close();
+        assertEquals(List.of("a", "b"), descriptions(todos));
+
+        // loading folded the stale journal away into a newer snapshot, whose journal is replayed
+        String generation = Files.readAllLines(journal).get(0);
+        assertFalse(generation.equals("G | 2"));
+        Files.writeString(journal, generation + "\nA | " + new Todo("c").fileSavingString() + "\n");
+        todos = new TaskList();
+        storage().loadInfo(todos);
+        assertEquals(List.of("a", "b", "c"), descriptions(todos));
+    }
+
+    @Test
+    public void updateRecords_emptiedList_keepsHeaderAndFooter() throws Exception {
+        Storage storage = storage();
+        TaskList todos = new TaskList();
+        storage.loadInfo(todos);
+        todos.add(new Todo("a"));
+        storage.updateRecords(todos);
+        todos.remove(0);
+        storage.updateRecords(todos);
+        storage.close();
+
+        List<String> lines = Files.readAllLines(file());
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).startsWith(SnapshotFile.HEADER));
+        assertTrue(lines.get(1).startsWith(SnapshotFile.FOOTER));
+        TaskList reopened = new TaskList();
+        LoadReport report = storage().loadInfo(reopened);
+        assertEquals(0, reopened.size());
+        assertNull(report.getRecovery());
+        assertFalse(Files.exists(directory.resolve("snoopy.corrupt.txt")));
+    }
+
+    @Test
+    public void recordChanges_journaledAndReplayedOnReopen() throws Exception {
+        Storage storage = storage();
+        TaskList todos = new TaskList();
+        storage.loadInfo(todos);
+        for (String description : List.of("a", "b", "c")) {
+            todos.add(new Todo(description));
+            storage.recordAdd(todos);
+        }
+        todos.markAsDone(1);
+        storage.recordMark(todos, 1);
+        todos.remove(0);
+        storage.recordDelete(todos, 0);
+        storage.close();
+
+        assertEquals(0, Files.size(file()));
+        assertEquals(6, Files.readAllLines(directory.resolve("snoopy.journal")).size());
+        TaskList reopened = new TaskList();
+        storage().loadInfo(reopened);
+        assertEquals(List.of("b", "c"), descriptions(reopened));
+        assertTrue(reopened.get(0).isDone());
+        assertFalse(reopened.get(1).isDone());
+    }
+
+    @Test
+    public void recordRestore_undoneDelete_journaledAsInsert() throws Exception {
+        Storage storage = storage();
+        TaskList todos = new TaskList();
+        storage.loadInfo(todos);
+        for (String description : List.of("a", "b", "c")) {
+            todos.add(new Todo(description));
+            storage.recordAdd(todos);
+        }
+        todos.markAsDone(1);
+        storage.recordMark(todos, 1);
+        todos.remove(1);
+        storage.recordDelete(todos, 1);
+        storage.recordRestore(todos, todos.undo());
+        storage.close();
+
+        List<String> journal = Files.readAllLines(directory.resolve("snoopy.journal"));
+        assertEquals("I | 1 | " + todos.get(1).fileSavingString(), journal.get(journal.size() - 1));
+        assertEquals(0, Files.size(file()));
+        TaskList reopened = new TaskList();
+        storage().loadInfo(reopened);
+        assertEquals(List.of("a", "b", "c"), descriptions(reopened));
+        assertEquals(List.of(1, 2, 3), ids(reopened));
+        assertTrue(reopened.get(1).isDone());
+    }
+
+    @Test
+    public void recordRestore_undoAndRedoOfBulkChanges_replayedToSameList() throws Exception {
+        Storage storage = storage();
+        TaskList todos = new TaskList();
+        storage.loadInfo(todos);
+        for (int i = 0; i < 10; i++) {
+            todos.add(new Todo("task " + i));
+            storage.recordAdd(todos);
+        }
+        BitSet marked = new BitSet();
+        marked.set(2, 6);
+        todos.markAllAsDone(marked);
+        storage.recordMarks(todos, marked, true);
+        BitSet deleted = new BitSet();
+        deleted.set(0);
+        deleted.set(4);
+        deleted.set(9);
+        todos.removeAll(deleted);
+        storage.recordDeletes(todos, deleted);
+        storage.recordRestore(todos, todos.undo());
+        storage.recordRestore(todos, todos.undo());
+        storage.recordRestore(todos, todos.redo());
+        todos.remove(3);
+        storage.recordDelete(todos, 3);
+        storage.recordRestore(todos, todos.undo());
+        storage.recordRestore(todos, todos.redo());
+        storage.close();
+
+        assertEquals(0, Files.size(file()));
+        TaskList reopened = new TaskList();
+        storage().loadInfo(reopened);
+        assertEquals(descriptions(todos), descriptions(reopened));
+        assertEquals(ids(todos), ids(reopened));
+        for (int i = 0; i < todos.size(); i++) {
+            assertEquals(todos.get(i).isDone(), reopened.get(i).isDone());
+        }
+    }
+
+    @Test
+    public void recordAdd_journalAtThreshold_compactedIntoSnapshot() throws Exception {
+        Storage storage = storage();
+        TaskList todos = new TaskList();
+        storage.loadInfo(todos);
+        Path journal = directory.resolve("snoopy.journal");
+        for (int i = 1; i < Storage.COMPACTION_THRESHOLD; i++) {
+            todos.add(new Todo("task " + i));
+            storage.recordAdd(todos);
+        }
+        assertEquals(Storage.COMPACTION_THRESHOLD, Files.readAllLines(journal).size());
+        assertEquals(0, Files.size(file()));
+
+        todos.add(new Todo("task " + Storage.COMPACTION_THRESHOLD));
+        storage.recordAdd(todos);
+        storage.close();
+        assertEquals(1, Files.readAllLines(journal).size());
+        assertEquals(Storage.COMPACTION_THRESHOLD, SnapshotFile.read(file()).getTasks().size());
+        TaskList reopened = new TaskList();
+        storage().loadInfo(reopened);
+        assertEquals(Storage.COMPACTION_THRESHOLD, reopened.size());
+    }
+
+    @Test
+    public void loadInfo_tornLastRecord_skipped() throws Exception {
+        Storage storage = storage();
+        TaskList todos = new TaskList();
+        storage.loadInfo(todos);
+        todos.add(new Todo("read book"));
+        storage.recordAdd(todos);
+        storage.close();
+        String record = "A | " + new Todo("return book").fileSavingString();
+        // cut off mid-line by a crash, leaving what still decodes as a task called "ret"
+        Files.writeString(directory.resolve("snoopy.journal"), record.substring(0, 15), StandardOpenOption.APPEND);
+
+        TaskList reopened = new TaskList();
+        storage().loadInfo(reopened);
+        assertEquals(List.of("read book"), descriptions(reopened));
+    }
+
+    @Test
+    public void loadInfo_garbledLines_quarantinedAndRestLoaded() throws Exception {
+        Files.writeString(file(), "T | 1 | read book | fun | 1\n"
+                + "garbage line\n"
+                + "D | 0 | return book | 2024-02-01 |  | 2\n"
+                + "Q | 0 | what\n");
+        Storage storage = storage();
+        TaskList todos = new TaskList();
+        LoadReport report = storage.loadInfo(todos);
+        storage.close();
+
+        assertEquals(List.of("read book", "return book"), descriptions(todos));
+        assertEquals(2, report.getLoaded());
+        assertEquals(2, report.getBadLines().size());
+        assertEquals(2, report.getBadLines().get(0).getLineNumber());
+        assertEquals("garbage line", report.getBadLines().get(0).getLine());
+        assertEquals(4, report.getBadLines().get(1).getLineNumber());
+        assertEquals("Unknown task type: Q", report.getBadLines().get(1).getReason());
+        Path quarantine = directory.resolve("snoopy.quarantine.txt");
+        assertEquals(List.of("# line 2: Record has too few fields", "garbage line",
+                "# line 4: Unknown task type: Q", "Q | 0 | what"), Files.readAllLines(quarantine));
+        assertTrue(report.toString().contains("Quarantined 2 bad lines into " + quarantine));
+
+        // the snapshot was saved again without them, so they are only quarantined once
+        TaskList reopened = new TaskList();
+        assertTrue(storage().loadInfo(reopened).isClean());
+        assertEquals(List.of("read book", "return book"), descriptions(reopened));
+        assertEquals(4, Files.readAllLines(quarantine).size());
+    }
+
+    @Test
+    public void loadInfoLazily_intactSnapshot_listedStraightAwayAndIndexedInBackground() throws Exception {
+        saveTwoSnapshots();
+        Storage storage = storage();
+        TaskList todos = new TaskList();
+        LoadReport report = storage.loadInfoLazily(todos);
+        assertEquals(2, report.getLoaded());
+        assertEquals(2, todos.size());
+        assertEquals("b", todos.get(1).getDescription());
+
+        // waits for the background loading
+        assertEquals(1, todos.find("b").size());
+        todos.add(new Todo("c"));
+        storage.recordAdd(todos);
+        storage.close();
+        assertEquals(List.of(1, 2, 3), ids(todos));
+    }
+
+    @Test
+    public void loadInfoLazily_journalToReplay_loadedInFull() throws Exception {
+        saveTwoSnapshots();
+        long generation = SnapshotFile.read(file()).getGeneration();
+        Files.writeString(directory.resolve("snoopy.journal"),
+                "G | " + generation + "\nA | " + new Todo("c").fileSavingString() + "\n");
+
+        TaskList todos = new TaskList();
+        storage().loadInfoLazily(todos);
+        assertEquals(List.of("a", "b", "c"), descriptions(todos));
+    }
+
+    @Test
+    public void loadInfoLazily_archivingInterrupted_loadedInFull() throws Exception {
+        Storage storage = storage();
+        TaskList todos = new TaskList();
+        storage.loadInfo(todos);
+        todos.add(new Todo("a"));
+        todos.add(new Todo("b"));
+        todos.markAsDone(0);
+        storage.updateRecords(todos);
+        byte[] beforeArchiving = Files.readAllBytes(file());
+        storage.archiveFinished(todos, null);
+        storage.close();
+        // a crash after the segment was written but before the snapshot without its task
+        Files.write(file(), beforeArchiving);
+        Files.writeString(directory.resolve("snoopy.journal"),
+                "G | " + SnapshotFile.read(file()).getGeneration() + "\n");
+
+        TaskList reopened = new TaskList();
+        storage = storage();
+        storage.loadInfoLazily(reopened);
+        storage.close();
+        assertEquals(List.of("b"), descriptions(reopened));
+        assertEquals(1, storage.getArchivedCount());
+    }
+
+    @Test
+    public void loadInfoLazily_damageFoundInBackground_restoresBackup() throws Exception {
+        saveTwoSnapshots();
+        // same length, so the snapshot is opened and only its checksum tells
+        Files.writeString(file(), Files.readString(file()).replace("| b |", "| x |"));
+
+        Storage storage = storage();
+        TaskList todos = new TaskList();
+        assertEquals(2, storage.loadInfoLazily(todos).getLoaded());
+        assertEquals(List.of(), todos.find("x"));
+        storage.close();
+        assertEquals(List.of("a"), descriptions(todos));
+        assertTrue(Files.exists(directory.resolve("snoopy.corrupt.txt")));
+    }
+
+    @Test
+    public void loadInfoLazily_damageFoundAfterTasksRead_theirIdsNotGivenAgain() throws Exception {
+        Storage storage = storage();
+        TaskList todos = new TaskList();
+        storage.loadInfo(todos);
+        // long enough that the last task is read before the background loading is done
+        for (int i = 1; i < 20_000; i++) {
+            todos.add(new Todo("task " + i));
+        }
+        storage.updateRecords(todos);
+        todos.add(new Todo("last"));
+        storage.updateRecords(todos);
+        storage.close();
+        Files.writeString(file(), Files.readString(file()).replace("| last |", "| lost |"));
+
+        storage = storage();
+        TaskList reopened = new TaskList();
+        storage.loadInfoLazily(reopened);
+        Task read = reopened.get(reopened.size() - 1);
+        reopened.add(new Todo("new"));
+        storage.close();
+        assertEquals(19_999, reopened.get(19_998).getId());
+        assertTrue(reopened.get(19_999).getId() > read.getId());
+    }
+
+    @Test
+    public void loadInfoLazily_idsOutOfOrder_tasksAlreadyReadKeepTheirIds() throws Exception {
+        Task first = new Todo("a");
+        first.setId(5);
+        Task second = new Todo("b");
+        second.setId(3);
+        try (FileChannel channel = FileChannel.open(file(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            channel.write(SnapshotFile.encode(TaskList.snapshotOf(List.of(first, second)), 1));
+        }
+
+        Storage storage = storage();
+        TaskList todos = new TaskList();
+        storage.loadInfoLazily(todos);
+        Task read = todos.get(1);
+        int id = read.getId();
+        assertEquals(1, todos.find("b").size());
+        // the tasks read again are saved after the waiting are let through
+        awaitLoader();
+        storage.close();
+        assertEquals(id, read.getId());
+        assertEquals(List.of(5, 6), ids(todos));
+
+        TaskList reopened = new TaskList();
+        storage().loadInfoLazily(reopened);
+        assertEquals(List.of(5, 6), ids(reopened));
+    }
+
+}
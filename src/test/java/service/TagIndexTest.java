@@ -0,0 +1,41 @@
+package service;
+
+import model.Todo;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TagIndexTest {
+
+    private static BitSet positions(int... indexes) {
+        BitSet bits = new BitSet();
+        for (int i : indexes) {
+            bits.set(i);
+        }
+        return bits;
+    }
+
+    @Test
+    public void query_andBindsTighterThanOr(){
+        TaskList todos = new TaskList();
+        todos.add(new Todo("a", "work"));
+        todos.add(new Todo("b", "home"));
+        todos.add(new Todo("c", "work urgent"));
+        assertEquals(positions(0, 2), todos.findByTags("work"));
+        assertEquals(positions(1, 2), todos.findByTags("home or work and urgent"));
+    }
+
+    @Test
+    public void remove_laterPositionsMoveUp(){
+        TaskList todos = new TaskList();
+        todos.add(new Todo("a", "work"));
+        todos.add(new Todo("b", "home"));
+        todos.add(new Todo("c", "work"));
+        todos.remove(0);
+        assertEquals(positions(1), todos.findByTags("#work"));
+        assertEquals(positions(0), todos.findByTags("home"));
+    }
+
+}
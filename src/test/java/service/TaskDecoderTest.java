@@ -0,0 +1,42 @@
+package service;
+
+import exceptions.DukeException;
+import model.Task;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TaskDecoderTest {
+
+    @Test
+    public void decode_doneTodoWithTag_roundTrips(){
+        Task task = TaskDecoder.decode("T | 1 | read book | fun".split(" \\| "));
+        assertEquals("[T][X] read book #fun", task.toString());
+        assertEquals("T | 1 | read book | fun", task.fileSavingString());
+    }
+
+    @Test
+    public void decode_legacyNullTag_readAsUntagged(){
+        Task task = TaskDecoder.decode("T | 0 | read book | null".split(" \\| "));
+        assertEquals("[T][ ] read book", task.toString());
+    }
+
+    @Test
+    public void decode_deadlineWithoutTag_roundTrips(){
+        Task task = TaskDecoder.decode("D | 0 | return book | 2024-02-01 | ".split(" \\| "));
+        assertEquals("D | 0 | return book | 2024-02-01 | ", task.fileSavingString());
+    }
+
+    @Test
+    public void decode_eventWithTag_keepsTag(){
+        Task task = TaskDecoder.decode("E | 1 | meeting | 2024-02-01 1800 | 2024-02-01 1900 | work".split(" \\| "));
+        assertEquals("[E][X] meeting #work (from: Feb 01 2024 1800 to: Feb 01 2024 1900)", task.toString());
+    }
+
+    @Test
+    public void decode_unknownType_throws(){
+        assertThrows(DukeException.class, () -> TaskDecoder.decode("Q | 0 | what".split(" \\| ")));
+    }
+
+}
@@ -0,0 +1,132 @@
+package service;
+
+import model.Task;
+import model.Todo;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TaskListTest {
+
+    // Enough tasks for the vector to be several levels deep.
+    private static final int COUNT = 1024;
+
+    @Test
+    public void snapshot_unchangedByLaterWrites(){
+        TaskList todos = new TaskList();
+        todos.add(new Todo("a"));
+        todos.add(new Todo("b"));
+        TaskList.Snapshot before = todos.snapshot();
+
+        todos.remove(0);
+        todos.add(new Todo("c"));
+        assertEquals(2, before.size());
+        assertEquals("a", before.get(0).getDescription());
+        assertEquals("b", before.get(1).getDescription());
+        assertEquals("b", todos.get(0).getDescription());
+        assertEquals("c", todos.get(1).getDescription());
+    }
+
+    @Test
+    public void version_increasesWithEveryChange(){
+        TaskList todos = new TaskList();
+        long version = todos.getVersion();
+        todos.add(new Todo("a"));
+        todos.markAsDone(0);
+        todos.markAsUndone(0);
+        todos.remove(0);
+        assertEquals(version + 4, todos.getVersion());
+        assertTrue(todos.snapshot().getVersion() == todos.getVersion());
+    }
+
+    @Test
+    public void indexOfId_followsDeletesAcrossLeaves(){
+        TaskList todos = new TaskList();
+        for (int i = 0; i < 3 * COUNT; i++) {
+            todos.add(new Todo("task " + i));
+        }
+        int lastId = todos.get(todos.size() - 1).getId();
+        for (int i = 0; i < COUNT; i++) {
+            todos.remove(COUNT / 2);
+        }
+        assertEquals(2 * COUNT, todos.size());
+        assertEquals(todos.size() - 1, todos.indexOfId(lastId));
+        assertEquals(-1, todos.indexOfId(todos.get(0).getId() + COUNT / 2));
+        assertEquals("task " + (COUNT * 3 / 2), todos.get(COUNT / 2).getDescription());
+    }
+
+    @Test
+    public void removeIf_removesMatchesAcrossLeavesInOneChange(){
+        TaskList todos = new TaskList();
+        for (int i = 0; i < 3 * COUNT; i++) {
+            todos.add(new Todo("task " + i));
+        }
+        long version = todos.getVersion();
+        List<Task> removed = todos.removeIf(task -> task.getId() % 2 == 0);
+        assertEquals(3 * COUNT / 2, removed.size());
+        assertEquals(3 * COUNT / 2, todos.size());
+        assertEquals(version + 1, todos.getVersion());
+        assertEquals(-1, todos.indexOfId(removed.get(0).getId()));
+        assertEquals(todos.size() - 1, todos.indexOfId(todos.get(todos.size() - 1).getId()));
+        assertTrue(todos.find("task").stream().allMatch(task -> task.getId() % 2 != 0));
+        assertTrue(todos.removeIf(task -> false).isEmpty());
+        assertEquals(version + 1, todos.getVersion());
+    }
+
+    @Test
+    public void undo_restoresDeletedAndMarkedTasksAndRedoRepeats(){
+        TaskList todos = new TaskList();
+        todos.add(new Todo("read book"));
+        todos.add(new Todo("buy milk"));
+        Task before = todos.get(1);
+        todos.markAsDone(1);
+        todos.remove(0);
+
+        TaskList.Change change = todos.undo();
+        assertEquals("read book", change.getAdded().get(0).getDescription());
+        assertEquals(2, todos.size());
+        assertEquals(0, todos.indexOfId(change.getAdded().get(0).getId()));
+        assertEquals(1, todos.find("book").size());
+        todos.undo();
+        assertSame(before, todos.get(1));
+        assertFalse(todos.get(1).isDone());
+
+        todos.redo();
+        assertTrue(todos.get(1).isDone());
+        assertFalse(before.isDone());
+        todos.add(new Todo("walk dog"));
+        assertNull(todos.redo());
+        assertEquals(3, todos.size());
+    }
+
+    @Test
+    public void markAllAsDone_changesOnlyTasksNotDoneAsOneStep(){
+        TaskList todos = new TaskList();
+        for (int i = 0; i < COUNT; i++) {
+            todos.add(new Todo("task " + i));
+        }
+        todos.markAsDone(1);
+        BitSet positions = new BitSet();
+        positions.set(0, 3);
+        long version = todos.getVersion();
+        List<Task> marked = todos.markAllAsDone(positions);
+        assertEquals(2, marked.size());
+        assertEquals(version + 1, todos.getVersion());
+        assertTrue(todos.get(0).isDone() && todos.get(2).isDone());
+
+        assertEquals(3, todos.removeAll(positions).size());
+        assertEquals(COUNT - 3, todos.size());
+        todos.undo();
+        todos.undo();
+        assertEquals(COUNT, todos.size());
+        assertFalse(todos.get(0).isDone());
+        assertTrue(todos.get(1).isDone());
+    }
+}
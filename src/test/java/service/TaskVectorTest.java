@@ -0,0 +1,72 @@
+package service;
+
+import model.Task;
+import model.Todo;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class TaskVectorTest {
+
+    @Test
+    public void changes_matchArrayListAndLeaveOlderVersionsAlone(){
+        Random random = new Random(1);
+        List<Task> expected = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            expected.add(new Todo("task " + i));
+        }
+        TaskVector tasks = TaskVector.of(expected);
+        TaskVector original = tasks;
+        List<Task> originalTasks = new ArrayList<>(expected);
+        for (int i = 0; i < 5000; i++) {
+            int kind = random.nextInt(3);
+            if (kind == 0 || expected.isEmpty()) {
+                int index = random.nextInt(expected.size() + 1);
+                Task task = new Todo("new " + i);
+                tasks = tasks.insert(index, task);
+                expected.add(index, task);
+            } else if (kind == 1) {
+                int index = random.nextInt(expected.size());
+                tasks = tasks.remove(index);
+                expected.remove(index);
+            } else {
+                int index = random.nextInt(expected.size());
+                Task task = new Todo("set " + i);
+                tasks = tasks.set(index, task);
+                expected.set(index, task);
+            }
+        }
+        assertContains(expected, tasks);
+        assertContains(originalTasks, original);
+    }
+
+    @Test
+    public void remove_everyTask_leavesEmptyVectorThatGrowsAgain(){
+        TaskVector tasks = TaskVector.EMPTY;
+        for (int i = 0; i < 2000; i++) {
+            tasks = tasks.append(new Todo("task " + i));
+        }
+        while (tasks.size() > 0) {
+            tasks = tasks.remove(tasks.size() / 2);
+        }
+        Task task = new Todo("again");
+        tasks = tasks.append(task);
+        assertEquals(1, tasks.size());
+        assertSame(task, tasks.get(0));
+    }
+
+    private static void assertContains(List<Task> expected, TaskVector tasks) {
+        assertEquals(expected.size(), tasks.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertSame(expected.get(i), tasks.get(i));
+        }
+        List<Task> walked = new ArrayList<>();
+        tasks.forEach(walked::add);
+        assertEquals(expected, walked);
+    }
+}
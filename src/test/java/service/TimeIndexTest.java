@@ -0,0 +1,65 @@
+package service;
+
+import model.Deadline;
+import model.Event;
+import model.Task;
+import model.Todo;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TimeIndexTest {
+
+    private static List<String> descriptions(List<Task> tasks) {
+        List<String> descriptions = new ArrayList<>();
+        for (Task task : tasks) {
+            descriptions.add(task.getDescription());
+        }
+        return descriptions;
+    }
+
+    @Test
+    public void query_rangesEarliestFirst(){
+        TimeIndex index = new TimeIndex();
+        Task essay = new Deadline("essay", "2024-03-05 1800");
+        Task trip = new Event("trip", "2024-03-01", "2024-03-03");
+        Task quiz = new Deadline("quiz", "2024-03-05 1800");
+        index.add(essay);
+        index.add(trip);
+        index.add(quiz);
+        index.add(new Todo("no date"));
+
+        assertEquals(List.of("trip"), descriptions(index.before(LocalDateTime.of(2024, 3, 5, 18, 0))));
+        assertEquals(List.of("trip", "essay", "quiz"),
+                descriptions(index.between(LocalDateTime.of(2024, 3, 1, 0, 0), LocalDateTime.of(2024, 3, 5, 18, 0))));
+        assertEquals(List.of(), index.between(LocalDateTime.of(2024, 3, 6, 0, 0), LocalDateTime.of(2024, 3, 1, 0, 0)));
+
+        index.removeAll(List.of(essay, trip));
+        assertEquals(List.of("quiz"), descriptions(index.before(LocalDateTime.of(2025, 1, 1, 0, 0))));
+        index.remove(quiz);
+        assertEquals(List.of(), index.before(LocalDateTime.of(2025, 1, 1, 0, 0)));
+    }
+
+    @Test
+    public void findUndoneDueBefore_leavesOutDoneTasks(){
+        TaskList todos = new TaskList();
+        todos.add(new Deadline("essay", "2024-03-05 1800"));
+        todos.add(new Deadline("quiz", "2024-03-06 0900"));
+        todos.add(new Deadline("exam", "2099-01-01"));
+        LocalDateTime now = LocalDateTime.of(2024, 6, 1, 0, 0);
+        todos.markAsDone(0);
+        assertEquals(List.of("quiz"), descriptions(todos.findUndoneDueBefore(now)));
+        assertEquals(List.of("essay", "quiz"), descriptions(todos.findDueBefore(now)));
+
+        todos.markAsUndone(0);
+        todos.remove(1);
+        assertEquals(List.of("essay"), descriptions(todos.findUndoneDueBefore(now)));
+        todos.undo();
+        assertEquals(List.of("essay", "quiz"), descriptions(todos.findUndoneDueBefore(now)));
+    }
+
+}
@@ -0,0 +1,71 @@
+package snoopy;
+
+import model.Todo;
+import org.junit.jupiter.api.Test;
+import service.TaskList;
+
+import java.util.BitSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class CommandParserTest {
+
+    @Test
+    public void parse_eventSplitIntoTypedParts(){
+        ParsedCommand command = CommandParser.parse("event meeting /from 2024-12-14 1800 /to 2024-12-14 1900 /tag work");
+        assertEquals(Snoopy.Command.EVENT, command.getKind());
+        assertEquals("meeting", command.getDescription());
+        assertEquals("2024-12-14 1800", command.getFrom());
+        assertEquals("2024-12-14 1900", command.getTo());
+        assertEquals("work", command.getTag());
+    }
+
+    @Test
+    public void parse_missingOptionLeftOut(){
+        ParsedCommand command = CommandParser.parse("deadline essay /tag school");
+        assertEquals("essay /tag school", command.getDescription());
+        assertNull(command.getBy());
+        assertNull(command.getTag());
+    }
+
+    @Test
+    public void parse_taskNumberReadFromZero(){
+        assertEquals(41, CommandParser.parse("mark 42").getIndex());
+        assertEquals(-1, CommandParser.parse("delete two").getIndex());
+        assertEquals(-1, CommandParser.parse("unmark").getIndex());
+    }
+
+    @Test
+    public void parse_taskIdAfterHash(){
+        assertEquals(17, CommandParser.parse("delete #17").getId());
+        assertEquals(-1, CommandParser.parse("delete #17").getIndex());
+        assertEquals(0, CommandParser.parse("mark 17").getId());
+        assertEquals(0, CommandParser.parse("mark #").getId());
+    }
+
+    @Test
+    public void parse_commandWordIgnoresCase(){
+        assertEquals(Snoopy.Command.LIST, CommandParser.parse("LIST").getKind());
+        assertEquals(Snoopy.Command.UNKNOWN, CommandParser.parse("fetch ball").getKind());
+    }
+
+    @Test
+    public void parse_bulkTargetsPickEveryListedTask(){
+        TaskList todos = new TaskList();
+        for (int i = 0; i < 10; i++) {
+            todos.add(new Todo("task " + i));
+        }
+        todos.markAsDone(4);
+        BitSet expected = new BitSet();
+        expected.set(0, 3);
+        expected.set(6);
+        expected.set(todos.indexOfId(todos.get(8).getId()));
+        assertEquals(expected, CommandParser.parse("mark 1-3, 7,#" + todos.get(8).getId()).getSelection()
+                .positionsIn(todos));
+        assertEquals(BitSet.valueOf(new long[] {1 << 4}), CommandParser.parse("delete /done").getSelection()
+                .positionsIn(todos));
+        assertNull(CommandParser.parse("mark 4").getSelection());
+        assertNull(CommandParser.parse("mark 1-x").getSelection());
+    }
+}
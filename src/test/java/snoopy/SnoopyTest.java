@@ -0,0 +1,23 @@
+package snoopy;
+
+import org.junit.jupiter.api.Test;
+import service.TaskList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SnoopyTest {
+
+    @Test
+    public void processCommand_noStorage_changesMadeButNotSaved(){
+        TaskList todos = new TaskList();
+        assertTrue(Snoopy.processCommand("todo borrow book", todos, true).startsWith("Ooo happening!"));
+        assertTrue(Snoopy.processCommand("mark 1", todos, true).contains("borrow book"));
+        assertTrue(todos.get(0).isDone());
+        Snoopy.processCommand("delete 1", todos, true);
+        Snoopy.processCommand("undo", todos, true);
+        assertEquals(1, todos.size());
+        assertTrue(Snoopy.processCommand("archive", todos, true).contains("nowhere to keep archived tasks"));
+    }
+
+}
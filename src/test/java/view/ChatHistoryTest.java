@@ -0,0 +1,47 @@
+package view;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ChatHistoryTest {
+
+    @Test
+    public void add_oldestMessagesSpilledToTranscript(@TempDir Path dir) throws IOException {
+        Path transcript = dir.resolve("transcript.txt");
+        ChatHistory history = new ChatHistory(10, transcript);
+        for (int i = 0; i < 25; i++) {
+            history.add(ChatMessage.fromUser("message " + i));
+        }
+
+        assertTrue(history.getMessages().size() <= 10);
+        List<String> spilled = Files.readAllLines(transcript);
+        assertEquals("You: message 0", spilled.get(0));
+        assertEquals(25, spilled.size() + history.getMessages().size());
+        assertEquals("message 24", history.getMessages().get(history.getMessages().size() - 1).getText());
+    }
+
+    @Test
+    public void add_transcriptWrittenOnlyByExecutor(@TempDir Path dir) throws IOException {
+        Path transcript = dir.resolve("transcript.txt");
+        List<Runnable> writes = new ArrayList<>();
+        ChatHistory history = new ChatHistory(10, transcript, writes::add);
+        for (int i = 0; i < 25; i++) {
+            history.add(ChatMessage.fromUser("message " + i));
+        }
+
+        assertTrue(history.getMessages().size() <= 10);
+        assertFalse(Files.exists(transcript));
+        writes.forEach(Runnable::run);
+        assertEquals(25, Files.readAllLines(transcript).size() + history.getMessages().size());
+    }
+}